@@ -7,6 +7,7 @@ plugins {
     id("com.gradle.plugin-publish") version "0.9.10"
     id("net.ltgt.errorprone") version "0.0.13"
     id("com.github.sherter.google-java-format") version "0.6"
+    id("me.champeau.gradle.jmh") version "0.4.5"
 }
 
 googleJavaFormat {
@@ -49,21 +50,36 @@ tasks.withType<JavaCompile> {
     options.compilerArgs.addAll(arrayOf("-Xlint:all", "-Werror"))
 }
 
+jmh {
+    jmhVersion = "1.20"
+}
+
+val compileJmhJava by tasks.getting(JavaCompile::class) {
+    // The JMH annotation processor doesn't claim all annotations, which -Xlint:processing warns about
+    options.compilerArgs.add("-Xlint:-processing")
+}
+
 val jar by tasks.getting(Jar::class) {
     from(Callable { project(":kotlin-extensions").java.sourceSets["main"].output })
 }
 
 val test by tasks.getting(Test::class) {
     val testGradleVersions = project.findProperty("test.gradle-versions") as? String
+    val testConfigurationCacheGradleVersions =
+            project.findProperty("test.configuration-cache-gradle-versions") as? String
 
     dependsOn(jar)
     inputs.file(jar.archivePath).withPathSensitivity(PathSensitivity.NONE)
     inputs.property("test.gradle-versions", testGradleVersions).optional(true)
+    inputs.property("test.configuration-cache-gradle-versions", testConfigurationCacheGradleVersions).optional(true)
 
     systemProperty("plugin", jar.archivePath)
     if (!testGradleVersions.isNullOrBlank()) {
         systemProperty("test.gradle-versions", testGradleVersions!!)
     }
+    if (!testConfigurationCacheGradleVersions.isNullOrBlank()) {
+        systemProperty("test.configuration-cache-gradle-versions", testConfigurationCacheGradleVersions!!)
+    }
 
     testLogging {
         showExceptions = true
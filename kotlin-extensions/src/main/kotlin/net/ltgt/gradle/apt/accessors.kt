@@ -26,6 +26,60 @@ var AptPlugin.AptOptions.annotationProcessing: Boolean
         isAnnotationProcessing = value
     }
 
+var AptPlugin.AptOptions.incremental: Boolean
+    get() = isIncremental
+    set(value) {
+        isIncremental = value
+    }
+
+var AptPlugin.AptOptions.deleteStaleGeneratedFiles: Boolean
+    get() = isDeleteStaleGeneratedFiles
+    set(value) {
+        isDeleteStaleGeneratedFiles = value
+    }
+
+var AptPlugin.AptOptions.normalizeGeneratedSources: Boolean
+    get() = isNormalizeGeneratedSources
+    set(value) {
+        isNormalizeGeneratedSources = value
+    }
+
+var AptPlugin.AptOptions.stagingGeneratedSources: Boolean
+    get() = isStagingGeneratedSources
+    set(value) {
+        isStagingGeneratedSources = value
+    }
+
+var AptPlugin.AptOptions.cacheProcessorClassLoaders: Boolean
+    get() = isCacheProcessorClassLoaders
+    set(value) {
+        isCacheProcessorClassLoaders = value
+    }
+
+var AptPlugin.AptOptions.profileProcessors: Boolean
+    get() = isProfileProcessors
+    set(value) {
+        isProfileProcessors = value
+    }
+
+var AptPlugin.AptOptions.profileProcessorAllocations: Boolean
+    get() = isProfileProcessorAllocations
+    set(value) {
+        isProfileProcessorAllocations = value
+    }
+
+var AptPlugin.AptOptions.recordProvenance: Boolean
+    get() = isRecordProvenance
+    set(value) {
+        isRecordProvenance = value
+    }
+
+var AptPlugin.AptOptions.processorDaemon: Boolean
+    get() = isProcessorDaemon
+    set(value) {
+        isProcessorDaemon = value
+    }
+
 val SourceSet.annotationProcessorConfigurationName: String
     get() = withConvention(AptPlugin.AptSourceSetConvention::class) { annotationProcessorConfigurationName }
 
@@ -33,6 +87,10 @@ var SourceSet.annotationProcessorPath: FileCollection?
     get() = withConvention(AptPlugin.AptSourceSetConvention::class) { annotationProcessorPath }
     set(value) = withConvention(AptPlugin.AptSourceSetConvention::class) { annotationProcessorPath = value }
 
+var SourceSet.separateAnnotationProcessing: Boolean
+    get() = withConvention(AptPlugin.AptSourceSetConvention::class) { isSeparateAnnotationProcessing }
+    set(value) = withConvention(AptPlugin.AptSourceSetConvention::class) { isSeparateAnnotationProcessing = value }
+
 var SourceSetOutput.generatedSourcesDir: File?
     get() = withConvention(AptPlugin.AptSourceSetOutputConvention::class) { generatedSourcesDir }
     set(value) = withConvention(AptPlugin.AptSourceSetOutputConvention::class) { setGeneratedSourcesDir(value) }
@@ -0,0 +1,89 @@
+package net.ltgt.gradle.apt;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the configuration-time overhead of applying the plugin to a Java project with a given
+ * number of additional source sets and compile tasks, using the {@link AptPlugin.Impl} for the
+ * Gradle version on the classpath.
+ *
+ * <p>With Gradle 4.9 and later, the additional compile tasks are registered lazily, so {@link
+ * #applyAndRealizeMainCompileTask()} only pays for the tasks that are actually needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class AptPluginApplyBenchmark {
+  @Param({"0", "10", "100"})
+  int sourceSets;
+
+  @Param({"0", "10", "100"})
+  int compileTasks;
+
+  private static final Method registerMethod;
+
+  static {
+    Method method;
+    try {
+      method = TaskContainer.class.getMethod("register", String.class, Class.class);
+    } catch (NoSuchMethodException e) {
+      method = null;
+    }
+    registerMethod = method;
+  }
+
+  private Project project;
+
+  @Setup(Level.Invocation)
+  public void createProject() throws Exception {
+    project = ProjectBuilder.builder().build();
+    project.getPluginManager().apply(JavaPlugin.class);
+    SourceSetContainer sourceSetContainer =
+        project.getConvention().getPlugin(JavaPluginConvention.class).getSourceSets();
+    for (int i = 0; i < sourceSets; i++) {
+      sourceSetContainer.create("sourceSet" + i);
+    }
+    for (int i = 0; i < compileTasks; i++) {
+      registerTask(project.getTasks(), "compile" + i, JavaCompile.class);
+    }
+  }
+
+  private static void registerTask(TaskContainer tasks, String name, Class<? extends Task> type)
+      throws ReflectiveOperationException {
+    if (registerMethod == null) {
+      tasks.create(name, type);
+    } else {
+      registerMethod.invoke(tasks, name, type);
+    }
+  }
+
+  @Benchmark
+  public Project apply() {
+    new AptPlugin().apply(project);
+    return project;
+  }
+
+  @Benchmark
+  public Task applyAndRealizeMainCompileTask() {
+    new AptPlugin().apply(project);
+    return project.getTasks().getByName(JavaPlugin.COMPILE_JAVA_TASK_NAME);
+  }
+}
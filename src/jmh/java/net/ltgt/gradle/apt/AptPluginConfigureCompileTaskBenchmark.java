@@ -0,0 +1,74 @@
+package net.ltgt.gradle.apt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link AptPlugin.Impl#configureCompileTask} for each implementation, on fresh compile
+ * tasks.
+ *
+ * @see AptPluginImplBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class AptPluginConfigureCompileTaskBenchmark {
+  @Param({
+    "AptPlugin25to211",
+    "AptPlugin212to214",
+    "AptPlugin30to33",
+    "AptPlugin34to42",
+    "AptPlugin43to44",
+    "AptPlugin45",
+    "AptPlugin46"
+  })
+  String impl;
+
+  @Param({"10", "100"})
+  int compileTasks;
+
+  private AptPlugin.Impl aptPluginImpl;
+  private Project project;
+  private final List<JavaCompile> tasks = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void createImpl() throws Exception {
+    aptPluginImpl = AptPluginImplBenchmark.newImpl(impl);
+  }
+
+  @Setup(Level.Invocation)
+  public void createProject() {
+    project = ProjectBuilder.builder().build();
+    project.getPluginManager().apply(JavaPlugin.class);
+    tasks.clear();
+    for (int i = 0; i < compileTasks; i++) {
+      tasks.add(project.getTasks().create("compile" + i, JavaCompile.class));
+    }
+  }
+
+  @Benchmark
+  public void configureCompileTask() {
+    for (JavaCompile task : tasks) {
+      task.getConvention()
+          .getPlugins()
+          .put(
+              AptPlugin.PLUGIN_ID,
+              aptPluginImpl.createAptConvention(project, task, task.getOptions()));
+      aptPluginImpl.configureCompileTask(project, task, task.getOptions());
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package net.ltgt.gradle.apt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-task work done by each {@link AptPlugin.Impl} that doesn't modify the tasks, on
+ * a project with a given number of compile tasks.
+ *
+ * <p>All implementations run against the Gradle version on the classpath, so this compares the
+ * strategies themselves, not the Gradle versions they target.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class AptPluginImplBenchmark {
+  @Param({
+    "AptPlugin25to211",
+    "AptPlugin212to214",
+    "AptPlugin30to33",
+    "AptPlugin34to42",
+    "AptPlugin43to44",
+    "AptPlugin45",
+    "AptPlugin46"
+  })
+  String impl;
+
+  @Param({"10", "100"})
+  int compileTasks;
+
+  private AptPlugin.Impl aptPluginImpl;
+  private Project project;
+  private final List<JavaCompile> tasks = new ArrayList<>();
+  private final List<AptPlugin.AptOptions> aptOptions = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void createProject() throws Exception {
+    aptPluginImpl = newImpl(impl);
+    project = ProjectBuilder.builder().build();
+    project.getPluginManager().apply(JavaPlugin.class);
+
+    for (int i = 0; i < compileTasks; i++) {
+      JavaCompile task = project.getTasks().create("compile" + i, JavaCompile.class);
+      AptPlugin.AptConvention convention =
+          aptPluginImpl.createAptConvention(project, task, task.getOptions());
+      task.getConvention().getPlugins().put(AptPlugin.PLUGIN_ID, convention);
+      aptPluginImpl.configureCompileTask(project, task, task.getOptions());
+      tasks.add(task);
+      aptOptions.add(convention.getAptOptions());
+    }
+  }
+
+  static AptPlugin.Impl newImpl(String impl) throws ReflectiveOperationException {
+    return Class.forName(AptPlugin.class.getPackage().getName() + "." + impl)
+        .asSubclass(AptPlugin.Impl.class)
+        .getDeclaredConstructor()
+        .newInstance();
+  }
+
+  @Benchmark
+  public void createAptConvention(Blackhole blackhole) {
+    for (JavaCompile task : tasks) {
+      blackhole.consume(aptPluginImpl.createAptConvention(project, task, task.getOptions()));
+    }
+  }
+
+  @Benchmark
+  public void asArguments(Blackhole blackhole) {
+    for (AptPlugin.AptOptions options : aptOptions) {
+      blackhole.consume(options.asArguments());
+    }
+  }
+}
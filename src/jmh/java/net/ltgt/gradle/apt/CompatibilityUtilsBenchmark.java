@@ -0,0 +1,94 @@
+package net.ltgt.gradle.apt;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.TaskInputs;
+import org.gradle.api.tasks.TaskOutputs;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the {@link CompatibilityUtils} method handles with invoking the same methods through
+ * {@link Method#invoke}, as {@link CompatibilityUtils} used to do.
+ *
+ * <p>Task inputs only ever grow, so each iteration uses a fresh task.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CompatibilityUtilsBenchmark {
+  private static final Object[] FILES = new Object[] {"src/main/java"};
+
+  private Method getInputsMethod;
+  private Method getOutputsMethod;
+  private Method filesMethod;
+  private Method propertyMethod;
+
+  private Project project;
+  private Task task;
+  private TaskInputs inputs;
+
+  @Setup(Level.Trial)
+  public void createProject() throws Exception {
+    getInputsMethod = Task.class.getMethod("getInputs");
+    getOutputsMethod = Task.class.getMethod("getOutputs");
+    filesMethod = TaskInputs.class.getMethod("files", Object[].class);
+    propertyMethod = TaskInputs.class.getMethod("property", String.class, Object.class);
+    project = ProjectBuilder.builder().build();
+  }
+
+  @Setup(Level.Iteration)
+  public void createTask() {
+    task = project.getTasks().create("task" + System.nanoTime());
+    inputs = task.getInputs();
+  }
+
+  @Benchmark
+  public TaskInputs getInputs() {
+    return CompatibilityUtils.getInputs(task);
+  }
+
+  @Benchmark
+  public TaskInputs getInputsReflection() throws Exception {
+    return (TaskInputs) getInputsMethod.invoke(task);
+  }
+
+  @Benchmark
+  public TaskOutputs getOutputs() {
+    return CompatibilityUtils.getOutputs(task);
+  }
+
+  @Benchmark
+  public TaskOutputs getOutputsReflection() throws Exception {
+    return (TaskOutputs) getOutputsMethod.invoke(task);
+  }
+
+  @Benchmark
+  public void files() {
+    CompatibilityUtils.files(inputs, FILES);
+  }
+
+  @Benchmark
+  public Object filesReflection() throws Exception {
+    return filesMethod.invoke(inputs, new Object[] {FILES});
+  }
+
+  @Benchmark
+  public void property() {
+    CompatibilityUtils.property(inputs, "name", "value");
+  }
+
+  @Benchmark
+  public Object propertyReflection() throws Exception {
+    return propertyMethod.invoke(inputs, new Object[] {"name", "value"});
+  }
+}
@@ -0,0 +1,39 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The annotation processing settings of a project, as a Tooling API model.
+ *
+ * <p>IDEs can request this model, through an interface with the same name and methods, to get the
+ * settings of all projects without generating (or going through) IDE configuration files.
+ */
+public interface AnnotationProcessingModel {
+  /** The path of the project, e.g. {@code :core}. */
+  String getProjectPath();
+
+  /** The settings of each source set, empty if the {@code net.ltgt.apt} plugin isn't applied. */
+  List<? extends SourceSetSettings> getSourceSets();
+
+  interface SourceSetSettings {
+    String getName();
+
+    /** Whether annotation processing is enabled for the source set's Java compile task. */
+    boolean isAnnotationProcessing();
+
+    /** The resolved annotation processor path. */
+    List<File> getProcessorPath();
+
+    @Nullable
+    File getGeneratedSourcesDir();
+
+    /** The annotation processors to run, empty if they're discovered from the processor path. */
+    List<String> getProcessors();
+
+    /** The annotation processor options, resolved; a {@code null} value means {@code -Akey}. */
+    Map<String, String> getProcessorArgs();
+  }
+}
@@ -0,0 +1,199 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.tooling.provider.model.ToolingModelBuilder;
+import org.gradle.tooling.provider.model.ToolingModelBuilderRegistry;
+
+/**
+ * Builds the {@link AnnotationProcessingModel} of projects.
+ *
+ * <p>Models are only computed when requested, and then cached for the rest of the build, as a new
+ * registry (hence a new builder) is created for each build.
+ */
+class AnnotationProcessingModelBuilder implements ToolingModelBuilder {
+  private static final Set<ToolingModelBuilderRegistry> REGISTRIES =
+      Collections.newSetFromMap(new WeakHashMap<ToolingModelBuilderRegistry, Boolean>());
+
+  /** Registers a builder, unless one has already been registered for the project's registry. */
+  static void register(Project project) {
+    ToolingModelBuilderRegistry registry =
+        ((ProjectInternal) project).getServices().get(ToolingModelBuilderRegistry.class);
+    synchronized (REGISTRIES) {
+      if (REGISTRIES.add(registry)) {
+        registry.register(new AnnotationProcessingModelBuilder());
+      }
+    }
+  }
+
+  private final Map<String, DefaultAnnotationProcessingModel> models = new LinkedHashMap<>();
+
+  @Override
+  public boolean canBuild(String modelName) {
+    return modelName.equals(AnnotationProcessingModel.class.getName());
+  }
+
+  @Override
+  public synchronized Object buildAll(String modelName, Project project) {
+    DefaultAnnotationProcessingModel model = models.get(project.getPath());
+    if (model == null) {
+      model = buildModel(project);
+      models.put(project.getPath(), model);
+    }
+    return model;
+  }
+
+  private static DefaultAnnotationProcessingModel buildModel(Project project) {
+    List<DefaultSourceSetSettings> sourceSets = new ArrayList<>();
+    JavaPluginConvention javaConvention =
+        project.getConvention().findPlugin(JavaPluginConvention.class);
+    if (project.getPlugins().hasPlugin(AptPlugin.class) && javaConvention != null) {
+      for (SourceSet sourceSet : javaConvention.getSourceSets()) {
+        sourceSets.add(buildSourceSetSettings(project, sourceSet));
+      }
+    }
+    return new DefaultAnnotationProcessingModel(project.getPath(), sourceSets);
+  }
+
+  private static DefaultSourceSetSettings buildSourceSetSettings(
+      Project project, SourceSet sourceSet) {
+    FileCollection processorPath =
+        new DslObject(sourceSet)
+            .getConvention()
+            .getPlugin(AptPlugin.AptSourceSetConvention.class)
+            .getAnnotationProcessorPath();
+    File generatedSourcesDir =
+        new DslObject(sourceSet.getOutput())
+            .getConvention()
+            .getPlugin(AptPlugin.AptSourceSetOutputConvention.class)
+            .getGeneratedSourcesDir();
+
+    boolean annotationProcessing = true;
+    List<String> processors = new ArrayList<>();
+    Map<String, String> processorArgs = new LinkedHashMap<>();
+    Task compileTask = project.getTasks().findByName(sourceSet.getCompileJavaTaskName());
+    AptPlugin.AptConvention aptConvention =
+        compileTask == null
+            ? null
+            : new DslObject(compileTask).getConvention().findPlugin(AptPlugin.AptConvention.class);
+    if (aptConvention != null) {
+      AptPlugin.AptOptions aptOptions = aptConvention.getAptOptions();
+      annotationProcessing = aptOptions.isAnnotationProcessing();
+      if (aptOptions.getProcessors() != null) {
+        for (Object processor : aptOptions.getProcessors()) {
+          processors.add(String.valueOf(processor));
+        }
+      }
+      for (Map.Entry<String, Object> arg : aptOptions.getAllProcessorArgs().entrySet()) {
+        processorArgs.put(arg.getKey(), arg.getValue() == null ? null : arg.getValue().toString());
+      }
+    }
+
+    return new DefaultSourceSetSettings(
+        sourceSet.getName(),
+        annotationProcessing,
+        processorPath == null
+            ? Collections.<File>emptyList()
+            : new ArrayList<>(processorPath.getFiles()),
+        generatedSourcesDir,
+        processors,
+        processorArgs);
+  }
+
+  private static class DefaultAnnotationProcessingModel
+      implements AnnotationProcessingModel, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String projectPath;
+    private final List<DefaultSourceSetSettings> sourceSets;
+
+    DefaultAnnotationProcessingModel(
+        String projectPath, List<DefaultSourceSetSettings> sourceSets) {
+      this.projectPath = projectPath;
+      this.sourceSets = sourceSets;
+    }
+
+    @Override
+    public String getProjectPath() {
+      return projectPath;
+    }
+
+    @Override
+    public List<DefaultSourceSetSettings> getSourceSets() {
+      return sourceSets;
+    }
+  }
+
+  private static class DefaultSourceSetSettings
+      implements AnnotationProcessingModel.SourceSetSettings, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final boolean annotationProcessing;
+    private final List<File> processorPath;
+    @Nullable private final File generatedSourcesDir;
+    private final List<String> processors;
+    private final Map<String, String> processorArgs;
+
+    DefaultSourceSetSettings(
+        String name,
+        boolean annotationProcessing,
+        List<File> processorPath,
+        @Nullable File generatedSourcesDir,
+        List<String> processors,
+        Map<String, String> processorArgs) {
+      this.name = name;
+      this.annotationProcessing = annotationProcessing;
+      this.processorPath = processorPath;
+      this.generatedSourcesDir = generatedSourcesDir;
+      this.processors = processors;
+      this.processorArgs = processorArgs;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public boolean isAnnotationProcessing() {
+      return annotationProcessing;
+    }
+
+    @Override
+    public List<File> getProcessorPath() {
+      return processorPath;
+    }
+
+    @Nullable
+    @Override
+    public File getGeneratedSourcesDir() {
+      return generatedSourcesDir;
+    }
+
+    @Override
+    public List<String> getProcessors() {
+      return processors;
+    }
+
+    @Override
+    public Map<String, String> getProcessorArgs() {
+      return processorArgs;
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Detects the annotation processors declared (in {@code
+ * META-INF/services/javax.annotation.processing.Processor}) by the entries of an annotation
+ * processor path.
+ *
+ * <p>Results for JARs are cached by path, size and last modification time, both in memory (for the
+ * most recently used JARs) and in the Gradle user home, so each JAR is only opened once as long as
+ * it doesn't change. As with Gradle's own caches, entries that haven't been used for some time are
+ * deleted from the Gradle user home, at most once a day.
+ */
+final class AnnotationProcessorDetector {
+  private static final Logger LOGGER = Logging.getLogger(AnnotationProcessorDetector.class);
+
+  static final String PROCESSOR_SERVICE = DelegatingProcessor.PROCESSOR_SERVICE;
+
+  private static final String CACHE_PATH = "caches/net.ltgt.apt/processor-detection-2";
+  private static final int MAX_CACHED_JARS = 1024;
+  private static final int MAX_CACHED_FILE_SETS = 256;
+  static final String CLEANUP_MARKER = "last-cleanup";
+  private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(7);
+  // Also how often the last access time of cache entries is updated.
+  private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  // There's generally a single Gradle user home per daemon.
+  private static final LruCache<File, AnnotationProcessorDetector> INSTANCES = new LruCache<>(4);
+
+  static AnnotationProcessorDetector forGradleUserHome(File gradleUserHomeDir) {
+    File cacheDir = new File(gradleUserHomeDir, CACHE_PATH);
+    AnnotationProcessorDetector detector = INSTANCES.get(cacheDir);
+    if (detector == null) {
+      detector = new AnnotationProcessorDetector(cacheDir);
+      AnnotationProcessorDetector previous = INSTANCES.putIfAbsent(cacheDir, detector);
+      if (previous != null) {
+        detector = previous;
+      }
+    }
+    return detector;
+  }
+
+  private final File cacheDir;
+  private final LruCache<String, Set<String>> processorsByStamp = new LruCache<>(MAX_CACHED_JARS);
+  private final LruCache<List<String>, Boolean> hasProcessorsByFileSet =
+      new LruCache<>(MAX_CACHED_FILE_SETS);
+  private final AtomicBoolean cleanedUp = new AtomicBoolean();
+
+  AnnotationProcessorDetector(File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /** Returns the annotation processors declared by all the given files, in order. */
+  Set<String> getProcessors(Iterable<File> files) {
+    Set<String> processors = new LinkedHashSet<>();
+    for (File file : files) {
+      processors.addAll(getProcessors(file));
+    }
+    return processors;
+  }
+
+  /**
+   * Returns whether any of the given files declares an annotation processor.
+   *
+   * <p>The result is cached for the most recently used sets of files, as long as none of them
+   * changes.
+   */
+  boolean hasProcessors(Iterable<File> files) {
+    List<String> key = new ArrayList<>();
+    for (File file : files) {
+      key.add(stamp(file));
+    }
+    Boolean hasProcessors = hasProcessorsByFileSet.get(key);
+    if (hasProcessors == null) {
+      hasProcessors = false;
+      for (File file : files) {
+        if (!getProcessors(file).isEmpty()) {
+          hasProcessors = true;
+          break;
+        }
+      }
+      hasProcessorsByFileSet.put(key, hasProcessors);
+    }
+    return hasProcessors;
+  }
+
+  private static String stamp(File file) {
+    // Directories are stamped by their service file
+    return FileHasher.stamp(file.isDirectory() ? new File(file, PROCESSOR_SERVICE) : file);
+  }
+
+  /** Returns the annotation processors declared by the given JAR or directory. */
+  Set<String> getProcessors(File file) {
+    try {
+      if (file.isDirectory()) {
+        File serviceFile = new File(file, PROCESSOR_SERVICE);
+        if (!serviceFile.isFile()) {
+          return Collections.emptySet();
+        }
+        try (InputStream in = new FileInputStream(serviceFile)) {
+          return DelegatingProcessor.parseServiceFile(in);
+        }
+      }
+      if (!file.isFile()) {
+        return Collections.emptySet();
+      }
+      String stamp = FileHasher.stamp(file);
+      Set<String> processors = processorsByStamp.get(stamp);
+      if (processors == null) {
+        String hash = FileHasher.hash(stamp);
+        cleanUpIfNeeded();
+        processors = readCacheEntry(hash);
+        if (processors == null) {
+          processors = readJar(file);
+          writeCacheEntry(hash, processors);
+        }
+        processorsByStamp.put(stamp, processors);
+      }
+      return processors;
+    } catch (IOException e) {
+      LOGGER.debug("Cannot detect annotation processors in {}", file, e);
+      return Collections.emptySet();
+    }
+  }
+
+  private static Set<String> readJar(File file) throws IOException {
+    // ZipFile only reads (maps) the central directory and the entries we ask for.
+    try (ZipFile zipFile = new ZipFile(file)) {
+      ZipEntry entry = zipFile.getEntry(PROCESSOR_SERVICE);
+      if (entry == null) {
+        return Collections.emptySet();
+      }
+      try (InputStream in = zipFile.getInputStream(entry)) {
+        return DelegatingProcessor.parseServiceFile(in);
+      }
+    }
+  }
+
+  private File getCacheEntry(String hash) {
+    return new File(cacheDir, hash);
+  }
+
+  @Nullable
+  private Set<String> readCacheEntry(String hash) {
+    File cacheEntry = getCacheEntry(hash);
+    if (!cacheEntry.isFile()) {
+      return null;
+    }
+    Set<String> processors;
+    try (InputStream in = new FileInputStream(cacheEntry)) {
+      processors = DelegatingProcessor.parseServiceFile(in);
+    } catch (IOException e) {
+      LOGGER.debug("Cannot read annotation processor detection cache entry {}", cacheEntry, e);
+      return null;
+    }
+    // The last modification time is used as the last access time.
+    long now = System.currentTimeMillis();
+    if (cacheEntry.lastModified() < now - CLEANUP_INTERVAL_MILLIS) {
+      cacheEntry.setLastModified(now);
+    }
+    return processors;
+  }
+
+  /**
+   * Deletes the cache entries (and temporary files) that haven't been used for a week. This is
+   * done once per detector, when the disk cache is first used, and only if no detector (in any
+   * daemon) did it in the last day.
+   */
+  private void cleanUpIfNeeded() {
+    if (!cleanedUp.compareAndSet(false, true)) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    File marker = new File(cacheDir, CLEANUP_MARKER);
+    // lastModified() returns 0 if the marker doesn't exist.
+    if (!cacheDir.isDirectory() || marker.lastModified() >= now - CLEANUP_INTERVAL_MILLIS) {
+      return;
+    }
+    try {
+      if (!marker.createNewFile()) {
+        marker.setLastModified(now);
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Cannot clean up annotation processor detection cache {}", cacheDir, e);
+      return;
+    }
+    File[] entries = cacheDir.listFiles();
+    if (entries == null) {
+      return;
+    }
+    for (File entry : entries) {
+      if (!entry.equals(marker) && entry.lastModified() < now - MAX_UNUSED_MILLIS) {
+        try {
+          Files.deleteIfExists(entry.toPath());
+        } catch (IOException e) {
+          LOGGER.debug("Cannot delete annotation processor detection cache entry {}", entry, e);
+        }
+      }
+    }
+  }
+
+  private void writeCacheEntry(String hash, Set<String> processors) {
+    // Write to a temporary file then move it in place, so concurrent builds never see partial
+    // entries.
+    try {
+      if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+        throw new IOException("Cannot create directory " + cacheDir);
+      }
+      File tmp = File.createTempFile(hash, ".tmp", cacheDir);
+      try {
+        try (Writer writer =
+            new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+          for (String processor : processors) {
+            writer.write(processor);
+            writer.write('\n');
+          }
+        }
+        File cacheEntry = getCacheEntry(hash);
+        try {
+          Files.move(tmp.toPath(), cacheEntry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp.toPath(), cacheEntry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tmp.toPath());
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Cannot write annotation processor detection cache entry for {}", hash, e);
+    }
+  }
+}
@@ -139,7 +139,7 @@ public class AptEclipsePlugin implements Plugin<Project> {
                                   .getConvention()
                                   .getPlugin(AptPlugin.AptConvention.class)
                                   .getAptOptions()
-                                  .getProcessorArgs();
+                                  .getAllProcessorArgs();
                             }
                           });
 
@@ -4,7 +4,6 @@ import groovy.lang.Closure;
 import groovy.util.Node;
 import groovy.util.NodeList;
 import java.io.File;
-import java.io.FileFilter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -21,9 +20,11 @@ import org.gradle.api.Project;
 import org.gradle.api.XmlProvider;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.plugins.BasePluginConvention;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.plugins.ide.idea.GenerateIdeaModule;
 import org.gradle.plugins.ide.idea.IdeaPlugin;
 import org.gradle.plugins.ide.idea.model.IdeaModel;
@@ -101,20 +102,7 @@ public class AptIdeaPlugin implements Plugin<Project> {
               if (excl.contains(project.getBuildDir())
                   && excludeDirs.contains(project.getBuildDir())) {
                 excludeDirs.remove(project.getBuildDir());
-                // Race condition: many of these will actually be created afterwards…
-                File[] subdirs =
-                    project
-                        .getBuildDir()
-                        .listFiles(
-                            new FileFilter() {
-                              @Override
-                              public boolean accept(File pathname) {
-                                return pathname.isDirectory();
-                              }
-                            });
-                if (subdirs != null) {
-                  excludeDirs.addAll(Arrays.asList(subdirs));
-                }
+                excludeDirs.addAll(getBuildDirExcludes(project, excl));
               }
               excludeDirs.removeAll(excl);
               ideaModule.setExcludeDirs(excludeDirs);
@@ -181,18 +169,59 @@ public class AptIdeaPlugin implements Plugin<Project> {
                   .get("plus")
                   .addAll(mainConfigurations);
               ideaModule.getScopes().get("TEST").get("plus").addAll(testConfigurations);
-              project
-                  .getTasks()
-                  .withType(
-                      GenerateIdeaModule.class,
-                      new Action<GenerateIdeaModule>() {
-                        @Override
-                        public void execute(GenerateIdeaModule generateIdeaModule) {
-                          generateIdeaModule.dependsOn(mainConfigurations.toArray());
-                          generateIdeaModule.dependsOn(testConfigurations.toArray());
-                        }
-                      });
+              CompatibilityUtils.configureEach(
+                  project.getTasks().withType(GenerateIdeaModule.class),
+                  new Action<GenerateIdeaModule>() {
+                    @Override
+                    public void execute(GenerateIdeaModule generateIdeaModule) {
+                      generateIdeaModule.dependsOn(mainConfigurations.toArray());
+                      generateIdeaModule.dependsOn(testConfigurations.toArray());
+                    }
+                  });
+            }
+          }
+
+          /**
+           * Returns the directories to exclude in place of the build directory, so the generated
+           * sources directories aren't excluded.
+           *
+           * <p>Those are computed from the model (source set outputs, compile tasks' destination
+           * directories, and conventional output directories) rather than by listing the build
+           * directory, whose content depends on which tasks have already run, or resolving the
+           * outputs of all tasks.
+           */
+          private Set<File> getBuildDirExcludes(Project project, Set<File> included) {
+            Set<File> outputs = new LinkedHashSet<>();
+            // Includes the generate<SourceSet>AnnotatedSources tasks, and other languages' tasks.
+            for (AbstractCompile task : project.getTasks().withType(AbstractCompile.class)) {
+              outputs.add(task.getDestinationDir());
+            }
+            JavaPluginConvention javaConvention =
+                project.getConvention().getPlugin(JavaPluginConvention.class);
+            for (SourceSet sourceSet : javaConvention.getSourceSets()) {
+              outputs.addAll(sourceSet.getOutput().getFiles());
+            }
+            outputs.add(javaConvention.getDocsDir());
+            outputs.add(javaConvention.getTestResultsDir());
+            outputs.add(javaConvention.getTestReportDir());
+            BasePluginConvention baseConvention =
+                project.getConvention().getPlugin(BasePluginConvention.class);
+            outputs.add(baseConvention.getLibsDir());
+            outputs.add(baseConvention.getDistsDir());
+            // Task.getTemporaryDir()
+            outputs.add(new File(project.getBuildDir(), "tmp"));
+
+            // For each output, exclude its outermost directory not containing generated sources.
+            Set<File> excludes = new LinkedHashSet<>();
+            for (File output : outputs) {
+              for (File f = output; f != null && !included.contains(f); f = f.getParentFile()) {
+                if (included.contains(f.getParentFile())) {
+                  excludes.add(f);
+                  break;
+                }
+              }
             }
+            return excludes;
           }
 
           private Set<File> addToSet(Set<File> sourceDirs, File... dirs) {
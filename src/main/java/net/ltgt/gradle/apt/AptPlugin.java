@@ -1,14 +1,22 @@
 package net.ltgt.gradle.apt;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import javax.annotation.Nullable;
 import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.FileCollection;
@@ -20,6 +28,7 @@ import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskInputs;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.compile.CompileOptions;
 import org.gradle.api.tasks.compile.GroovyCompile;
@@ -30,10 +39,25 @@ public class AptPlugin implements Plugin<Project> {
 
   static final String PLUGIN_ID = "net.ltgt.apt";
 
-  private static final Impl IMPL = Impl.newInstance();
+  private final Impl impl;
+
+  public AptPlugin() {
+    this(Impl.newInstance());
+  }
+
+  AptPlugin(Impl impl) {
+    this.impl = impl;
+  }
 
   @Override
   public void apply(final Project project) {
+    if (project == project.getRootProject()) {
+      AptTimingsReport timingsReport =
+          project.getTasks().create(AptTimingsReport.TASK_NAME, AptTimingsReport.class);
+      timingsReport.setReports(impl.deferred(project, timingsReport.getReports()));
+    }
+    AnnotationProcessingModelBuilder.register(project);
+
     configureCompileTasks(
         project,
         JavaCompile.class,
@@ -69,7 +93,7 @@ public class AptPlugin implements Plugin<Project> {
                           @Override
                           public void execute(final SourceSet sourceSet) {
                             AptSourceSetConvention convention =
-                                IMPL.createAptSourceSetConvention(project, sourceSet);
+                                impl.createAptSourceSetConvention(project, sourceSet);
                             new DslObject(sourceSet)
                                 .getConvention()
                                 .getPlugins()
@@ -99,6 +123,8 @@ public class AptPlugin implements Plugin<Project> {
                                     return task.getOptions();
                                   }
                                 });
+
+                            configureSeparateAnnotationProcessing(project, sourceSet, convention);
                           }
                         });
               }
@@ -143,27 +169,272 @@ public class AptPlugin implements Plugin<Project> {
       final Project project,
       Class<T> compileTaskClass,
       final GetCompileOptions<T> getCompileOptions) {
-    project
-        .getTasks()
-        .withType(
-            compileTaskClass,
-            new Action<T>() {
+    CompatibilityUtils.configureEach(
+        project.getTasks().withType(compileTaskClass),
+        new Action<T>() {
+          @Override
+          public void execute(T task) {
+            CompileOptions compileOptions = getCompileOptions.getCompileOptions(task);
+            task.getConvention()
+                .getPlugins()
+                .put(PLUGIN_ID, impl.createAptConvention(project, task, compileOptions));
+            impl.configureCompileTask(project, task, compileOptions);
+            configureProcessorArguments(task);
+            configureGeneratedSourcesNormalization(project, task, compileOptions);
+            // Must be configured last: its doFirst action has to run before the others, so they
+            // see the staging directory, and its doLast action after the others.
+            configureGeneratedSourcesStaging(project, task, compileOptions);
+          }
+        });
+  }
+
+  private void configureProcessorArguments(AbstractCompile task) {
+    final AptOptions aptOptions =
+        task.getConvention().getPlugin(AptConvention.class).getAptOptions();
+    TaskInputs inputs = CompatibilityUtils.getInputs(task);
+    CompatibilityUtils.optionalProperty(
+        inputs,
+        "aptOptions.processorArgValues",
+        new Callable<Object>() {
+          @Override
+          public Object call() {
+            return aptOptions.getProcessorArgValues();
+          }
+        });
+    CompatibilityUtils.inputFiles(
+        inputs,
+        "aptOptions.processorArgInputFiles",
+        new ProcessorArgFiles(aptOptions, ProcessorArgument.Kind.INPUT_FILE),
+        "NONE");
+    CompatibilityUtils.inputFiles(
+        inputs,
+        "aptOptions.processorArgInputDirectories",
+        new ProcessorArgFiles(aptOptions, ProcessorArgument.Kind.INPUT_DIRECTORY),
+        "RELATIVE");
+    CompatibilityUtils.outputDirs(
+        CompatibilityUtils.getOutputs(task),
+        "aptOptions.processorArgOutputDirectories",
+        new ProcessorArgFiles(aptOptions, ProcessorArgument.Kind.OUTPUT_DIRECTORY));
+  }
+
+  private static class ProcessorArgFiles implements Callable<List<FileCollection>> {
+    private final AptOptions aptOptions;
+    private final ProcessorArgument.Kind kind;
+
+    ProcessorArgFiles(AptOptions aptOptions, ProcessorArgument.Kind kind) {
+      this.aptOptions = aptOptions;
+      this.kind = kind;
+    }
+
+    @Override
+    public List<FileCollection> call() {
+      return aptOptions.getProcessorArgFiles(kind);
+    }
+  }
+
+  private void configureGeneratedSourcesNormalization(
+      final Project project, final AbstractCompile task, final CompileOptions compileOptions) {
+    // Task actions only capture values that can be serialized along with the task, so they're
+    // compatible with the configuration cache.
+    final AptOptions aptOptions =
+        task.getConvention().getPlugin(AptConvention.class).getAptOptions();
+    final List<String> absolutePaths =
+        Arrays.asList(
+            project.getRootDir().getAbsolutePath(),
+            project.getGradle().getGradleUserHomeDir().getAbsolutePath());
+    final Callable<File> reportFile =
+        impl.deferred(
+            project,
+            new Callable<File>() {
               @Override
-              public void execute(T task) {
-                CompileOptions compileOptions = getCompileOptions.getCompileOptions(task);
-                task.getConvention()
-                    .getPlugins()
-                    .put(PLUGIN_ID, IMPL.createAptConvention(project, task, compileOptions));
-                IMPL.configureCompileTask(project, task, compileOptions);
+              public File call() {
+                return new File(
+                    project.getBuildDir(),
+                    "reports/apt/" + task.getName() + "/non-reproducible-sources.txt");
               }
             });
+    CompatibilityUtils.property(
+        CompatibilityUtils.getInputs(task),
+        "aptOptions.normalizeGeneratedSources",
+        new Callable<Object>() {
+          @Override
+          public Object call() {
+            return aptOptions.isNormalizeGeneratedSources();
+          }
+        });
+    // Declared so the report is restored along with the other outputs on build cache hits.
+    CompatibilityUtils.outputFiles(
+        CompatibilityUtils.getOutputs(task),
+        "aptOptions.nonReproducibleSourcesReport",
+        new Callable<Object>() {
+          @Override
+          public Object call() throws Exception {
+            return aptOptions.isNormalizeGeneratedSources()
+                ? reportFile.call()
+                : Collections.emptyList();
+          }
+        });
+    task.doLast(
+        new Action<Task>() {
+          @Override
+          public void execute(Task task) {
+            if (!aptOptions.isNormalizeGeneratedSources()) {
+              return;
+            }
+            File generatedSourcesDir =
+                impl.getGeneratedSourcesDestinationDir((AbstractCompile) task, compileOptions);
+            if (generatedSourcesDir == null || !generatedSourcesDir.isDirectory()) {
+              return;
+            }
+            GeneratedSourcesNormalizer normalizer =
+                new GeneratedSourcesNormalizer(
+                    compileOptions.getEncoding() == null
+                        ? Charset.defaultCharset()
+                        : Charset.forName(compileOptions.getEncoding()),
+                    absolutePaths);
+            File report;
+            try {
+              report = reportFile.call();
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            }
+            try {
+              normalizer.normalize(generatedSourcesDir);
+              if (normalizer.hasNonReproducibleSources()) {
+                normalizer.writeReport(report);
+                for (String line : normalizer.getSummary()) {
+                  task.getLogger().info(line);
+                }
+                task.getLogger()
+                    .info("Non-reproducible generated sources have been reported in {}", report);
+              } else {
+                Files.deleteIfExists(report.toPath());
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+        });
+  }
+
+  private void configureGeneratedSourcesStaging(
+      Project project, AbstractCompile task, final CompileOptions compileOptions) {
+    final AptOptions aptOptions =
+        task.getConvention().getPlugin(AptConvention.class).getAptOptions();
+    final Action<Callable<File>> generatedSourcesDirSetter =
+        impl.getGeneratedSourcesDestinationDirSetter(project, task, compileOptions);
+    // Only set while the task executes.
+    final File[] generatedSourcesDir = new File[1];
+    task.doFirst(
+        new Action<Task>() {
+          @Override
+          public void execute(final Task task) {
+            generatedSourcesDir[0] = null;
+            if (!aptOptions.isStagingGeneratedSources()) {
+              return;
+            }
+            // With incremental compilation, only some files would be generated again.
+            if (aptOptions.isIncremental() || compileOptions.isIncremental()) {
+              task.getLogger()
+                  .warn(
+                      "{}: aptOptions.stagingGeneratedSources is ignored as {} is enabled",
+                      task.getPath(),
+                      aptOptions.isIncremental()
+                          ? "aptOptions.incremental"
+                          : "options.incremental");
+              return;
+            }
+            final File dir =
+                impl.getGeneratedSourcesDestinationDir((AbstractCompile) task, compileOptions);
+            if (dir == null) {
+              return;
+            }
+            final File stagingDir = getGeneratedSourcesStagingDir(task);
+            try {
+              GeneratedSourcesStaging.clean(stagingDir);
+              Files.createDirectories(stagingDir.toPath());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            generatedSourcesDir[0] = dir;
+            // Points to the staging directory only until the staged files have been synchronized,
+            // or the task failed, so there's nothing to restore.
+            generatedSourcesDirSetter.execute(
+                new Callable<File>() {
+                  @Override
+                  public File call() {
+                    return generatedSourcesDir[0] != null && !task.getState().getExecuted()
+                        ? stagingDir
+                        : dir;
+                  }
+                });
+          }
+        });
+    task.doLast(
+        new Action<Task>() {
+          @Override
+          public void execute(Task task) {
+            File dir = generatedSourcesDir[0];
+            if (dir == null) {
+              return;
+            }
+            File stagingDir = getGeneratedSourcesStagingDir(task);
+            boolean staged =
+                stagingDir.equals(
+                    impl.getGeneratedSourcesDestinationDir((AbstractCompile) task, compileOptions));
+            generatedSourcesDir[0] = null;
+            if (!staged) {
+              // Synchronizing would delete the sources that have been generated in place.
+              task.getLogger()
+                  .warn(
+                      "{}: generated sources have not been staged, as the generated sources"
+                          + " directory has been changed during execution",
+                      task.getPath());
+              return;
+            }
+            File indexFile = new File(task.getTemporaryDir(), "generated-sources-index");
+            GeneratedFilesIndex index = GeneratedFilesIndex.read(indexFile);
+            GeneratedSourcesStaging staging = new GeneratedSourcesStaging(index);
+            try {
+              staging.sync(stagingDir, dir);
+              index.write(indexFile);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            task.getLogger()
+                .info(
+                    "Generated sources: {} updated, {} unchanged, {} deleted",
+                    staging.getUpdated(),
+                    staging.getUnchanged(),
+                    staging.getDeleted());
+          }
+        });
+  }
+
+  private static File getGeneratedSourcesStagingDir(Task task) {
+    return new File(task.getTemporaryDir(), "generated-sources");
+  }
+
+  private void configureSeparateAnnotationProcessing(
+      final Project project,
+      final SourceSet sourceSet,
+      final AptSourceSetConvention convention) {
+    project.afterEvaluate(
+        new Action<Project>() {
+          @Override
+          public void execute(Project project) {
+            if (convention.isSeparateAnnotationProcessing()) {
+              impl.configureSeparateAnnotationProcessing(project, sourceSet);
+            }
+          }
+        });
   }
 
   private void ensureConfigurations(
       Project project, SourceSet sourceSet, AptSourceSetConvention convention) {
-    IMPL.ensureCompileOnlyConfiguration(project, sourceSet, convention);
+    impl.ensureCompileOnlyConfiguration(project, sourceSet, convention);
     Configuration annotationProcessorConfiguration =
-        IMPL.ensureAnnotationProcessorConfiguration(project, sourceSet, convention);
+        impl.ensureAnnotationProcessorConfiguration(project, sourceSet, convention);
     convention.setAnnotationProcessorPath(annotationProcessorConfiguration);
     createAptConfiguration(project, sourceSet, convention, annotationProcessorConfiguration);
   }
@@ -201,14 +472,21 @@ public class AptPlugin implements Plugin<Project> {
   }
 
   private <T extends AbstractCompile> void configureCompileTaskForSourceSet(
-      Project project,
-      SourceSet sourceSet,
+      final Project project,
+      final SourceSet sourceSet,
       String compileTaskName,
       Class<T> compileTaskClass,
-      GetCompileOptions<T> getCompileOptions) {
-    T task = project.getTasks().withType(compileTaskClass).getByName(compileTaskName);
-    IMPL.configureCompileTaskForSourceSet(
-        project, sourceSet, task, getCompileOptions.getCompileOptions(task));
+      final GetCompileOptions<T> getCompileOptions) {
+    CompatibilityUtils.configureTask(
+        project.getTasks().withType(compileTaskClass),
+        compileTaskName,
+        new Action<T>() {
+          @Override
+          public void execute(T task) {
+            impl.configureCompileTaskForSourceSet(
+                project, sourceSet, task, getCompileOptions.getCompileOptions(task));
+          }
+        });
   }
 
   private interface GetCompileOptions<T extends AbstractCompile> {
@@ -253,6 +531,51 @@ public class AptPlugin implements Plugin<Project> {
 
     protected abstract void configureCompileTaskForSourceSet(
         Project project, SourceSet sourceSet, AbstractCompile task, CompileOptions compileOptions);
+
+    /**
+     * Creates a task running only annotation processing for the given source set, and configures
+     * its compile task to compile the generated sources without annotation processing.
+     */
+    protected void configureSeparateAnnotationProcessing(Project project, SourceSet sourceSet) {
+      project
+          .getLogger()
+          .warn(
+              "sourceSets.{}.separateAnnotationProcessing requires Gradle 4.6 or later, ignoring.",
+              sourceSet.getName());
+    }
+
+    /**
+     * Returns a callable computing the given value, that doesn't reference the project once the
+     * task graph has been built, when supported, so it can be captured by task actions.
+     */
+    protected <T> Callable<T> deferred(Project project, Callable<T> value) {
+      return value;
+    }
+
+    /** Returns the generated sources directory without emitting deprecation warnings. */
+    @Nullable
+    protected File getGeneratedSourcesDestinationDir(
+        AbstractCompile task, CompileOptions compileOptions) {
+      return task.getConvention()
+          .getPlugin(AptConvention.class)
+          .getGeneratedSourcesDestinationDir();
+    }
+
+    /**
+     * Returns an action setting the generated sources directory, without emitting deprecation
+     * warnings, to a value computed each time it's read; the action can be used during execution.
+     */
+    protected Action<Callable<File>> getGeneratedSourcesDestinationDirSetter(
+        Project project, final AbstractCompile task, CompileOptions compileOptions) {
+      return new Action<Callable<File>>() {
+        @Override
+        public void execute(Callable<File> generatedSourcesDir) {
+          task.getConvention()
+              .getPlugin(AptConvention.class)
+              .setGeneratedSourcesDestinationDir(generatedSourcesDir);
+        }
+      };
+    }
   }
 
   public abstract static class AptConvention {
@@ -269,6 +592,21 @@ public class AptPlugin implements Plugin<Project> {
     private boolean annotationProcessing = true;
     private List<?> processors = new ArrayList<>();
     private Map<String, ?> processorArgs = new LinkedHashMap<>();
+    private boolean incremental;
+    private boolean deleteStaleGeneratedFiles;
+    private boolean normalizeGeneratedSources;
+    private boolean stagingGeneratedSources;
+    private boolean cacheProcessorClassLoaders;
+    private List<?> uncachedProcessors = new ArrayList<>();
+    private boolean profileProcessors;
+    private boolean profileProcessorAllocations;
+    @Nullable private Long processorAllocationBudget;
+    private boolean recordProvenance;
+    private boolean processorDaemon;
+    @Nullable private String processorDaemonMaxHeapSize;
+    @Nullable private Integer processorClassLoaderCacheSize;
+    private int processorClassLoaderIdleTimeout;
+    private final Map<String, ProcessorArgument> processorArguments = new LinkedHashMap<>();
 
     @Input
     public boolean isAnnotationProcessing() {
@@ -307,6 +645,330 @@ public class AptPlugin implements Plugin<Project> {
       this.processorArgs = processorArgs;
     }
 
+    /**
+     * Adds an annotation processor option whose value is only computed when the task executes,
+     * from a {@link Callable} (or Groovy closure), or a {@code Provider} with Gradle 4.6 and later.
+     * Other values are converted to strings when the task executes.
+     */
+    public void processorArg(String name, @Nullable Object value) {
+      processorArguments.put(
+          name, new ProcessorArgument(name, ProcessorArgument.Kind.VALUE, value));
+    }
+
+    /**
+     * Adds an annotation processor option pointing to a file, resolved as with {@link
+     * Project#file(Object)}, whose content is tracked as an input, whatever its path.
+     */
+    public void processorArgInputFile(String name, Object file) {
+      processorArguments.put(
+          name, new ProcessorArgument(name, ProcessorArgument.Kind.INPUT_FILE, files(file)));
+    }
+
+    /**
+     * Adds an annotation processor option pointing to a directory, resolved as with {@link
+     * Project#file(Object)}, whose content is tracked as an input, relative to the directory.
+     */
+    public void processorArgInputDirectory(String name, Object dir) {
+      processorArguments.put(
+          name, new ProcessorArgument(name, ProcessorArgument.Kind.INPUT_DIRECTORY, files(dir)));
+    }
+
+    /**
+     * Adds an annotation processor option pointing to a directory, resolved as with {@link
+     * Project#file(Object)}, which is tracked as an output.
+     */
+    public void processorArgOutputDirectory(String name, Object dir) {
+      processorArguments.put(
+          name, new ProcessorArgument(name, ProcessorArgument.Kind.OUTPUT_DIRECTORY, files(dir)));
+    }
+
+    /** Resolves the given paths relative to the project directory, when the task executes. */
+    protected abstract FileCollection files(Object paths);
+
+    /** Resolves the value of an annotation processor option. */
+    @Nullable
+    protected Object resolve(@Nullable Object value) {
+      return ProcessorArgument.resolveCallable(value);
+    }
+
+    /** The values of the options added with {@link #processorArg(String, Object)}. */
+    @Internal
+    @Nullable
+    Map<String, String> getProcessorArgValues() {
+      Map<String, String> values = new LinkedHashMap<>();
+      for (ProcessorArgument argument : processorArguments.values()) {
+        if (argument.getKind() == ProcessorArgument.Kind.VALUE) {
+          values.put(argument.getName(), argument.getValue(this));
+        }
+      }
+      return values.isEmpty() ? null : values;
+    }
+
+    /** The options from {@link #getProcessorArgs()} along with the typed ones, resolved. */
+    @Internal
+    Map<String, Object> getAllProcessorArgs() {
+      Map<String, Object> args = new LinkedHashMap<>();
+      if (processorArgs != null) {
+        args.putAll(processorArgs);
+      }
+      for (ProcessorArgument argument : processorArguments.values()) {
+        args.put(argument.getName(), argument.getValue(this));
+      }
+      return args;
+    }
+
+    List<FileCollection> getProcessorArgFiles(ProcessorArgument.Kind kind) {
+      List<FileCollection> files = new ArrayList<>();
+      for (ProcessorArgument argument : processorArguments.values()) {
+        if (argument.getKind() == kind) {
+          files.add(argument.getFiles());
+        }
+      }
+      return files;
+    }
+
+    /**
+     * Whether to track which files are generated from which originating elements, so that stale
+     * generated files are deleted when their originating elements are recompiled.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     */
+    @Input
+    public boolean isIncremental() {
+      return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+      this.incremental = incremental;
+    }
+
+    /**
+     * Whether to record the files generated by annotation processors, and delete those that
+     * haven't been generated again, without deleting the whole generated sources directory.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise; always enabled when {@link
+     * #isIncremental() incremental}.
+     */
+    @Internal
+    public boolean isDeleteStaleGeneratedFiles() {
+      return deleteStaleGeneratedFiles;
+    }
+
+    public void setDeleteStaleGeneratedFiles(boolean deleteStaleGeneratedFiles) {
+      this.deleteStaleGeneratedFiles = deleteStaleGeneratedFiles;
+    }
+
+    /**
+     * Whether to normalize known non-deterministic content (such as {@code @Generated} dates) in
+     * generated sources after compilation.
+     *
+     * <p>This doesn't make the compile task itself more cacheable, as its cache key only depends on
+     * its inputs; it only helps tasks consuming the generated sources, e.g. Javadoc or source JARs.
+     */
+    @Input
+    public boolean isNormalizeGeneratedSources() {
+      return normalizeGeneratedSources;
+    }
+
+    public void setNormalizeGeneratedSources(boolean normalizeGeneratedSources) {
+      this.normalizeGeneratedSources = normalizeGeneratedSources;
+    }
+
+    /**
+     * Whether to have annotation processors generate sources into a staging directory, and only
+     * replace the files in the generated sources directory whose content changed.
+     *
+     * <p>Ignored when {@link #isIncremental() incremental}, or with incremental compilation, as
+     * only some files are then generated.
+     */
+    @Internal
+    public boolean isStagingGeneratedSources() {
+      return stagingGeneratedSources;
+    }
+
+    public void setStagingGeneratedSources(boolean stagingGeneratedSources) {
+      this.stagingGeneratedSources = stagingGeneratedSources;
+    }
+
+    /**
+     * Whether to reuse annotation processor class loaders across compilations running in the same
+     * Gradle daemon, when their annotation processor paths have the same content.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     */
+    @Internal
+    public boolean isCacheProcessorClassLoaders() {
+      return cacheProcessorClassLoaders;
+    }
+
+    public void setCacheProcessorClassLoaders(boolean cacheProcessorClassLoaders) {
+      this.cacheProcessorClassLoaders = cacheProcessorClassLoaders;
+    }
+
+    /**
+     * Annotation processors (class names) that shouldn't be loaded from a cached class loader, for
+     * example because they keep state in static fields.
+     *
+     * @see #isCacheProcessorClassLoaders()
+     */
+    @Internal
+    @Nullable
+    public List<?> getUncachedProcessors() {
+      return uncachedProcessors;
+    }
+
+    public void setUncachedProcessors(@Nullable List<?> uncachedProcessors) {
+      this.uncachedProcessors = uncachedProcessors;
+    }
+
+    /**
+     * Whether to record the time spent by each annotation processor, along with the number of
+     * elements it processed and files it generated, in a JSON report.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     *
+     * @see AptTimingsReport
+     */
+    @Internal
+    public boolean isProfileProcessors() {
+      return profileProcessors;
+    }
+
+    public void setProfileProcessors(boolean profileProcessors) {
+      this.profileProcessors = profileProcessors;
+    }
+
+    /**
+     * Whether to record the bytes allocated by each annotation processor on the compiler thread,
+     * and the number and duration of garbage collections, during each round; implies {@link
+     * #isProfileProcessors()}.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     */
+    @Internal
+    public boolean isProfileProcessorAllocations() {
+      return profileProcessorAllocations;
+    }
+
+    public void setProfileProcessorAllocations(boolean profileProcessorAllocations) {
+      this.profileProcessorAllocations = profileProcessorAllocations;
+    }
+
+    /**
+     * The maximum number of bytes each annotation processor can allocate, over all rounds, before
+     * failing the compilation; implies {@link #isProfileProcessorAllocations()}.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     */
+    @Internal
+    @Nullable
+    public Long getProcessorAllocationBudget() {
+      return processorAllocationBudget;
+    }
+
+    public void setProcessorAllocationBudget(@Nullable Long processorAllocationBudget) {
+      this.processorAllocationBudget = processorAllocationBudget;
+    }
+
+    /**
+     * Whether to record which annotation processor generated each file, from which types, and its
+     * size, in a binary manifest.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     *
+     * @see ProvenanceManifest
+     */
+    @Internal
+    public boolean isRecordProvenance() {
+      return recordProvenance;
+    }
+
+    public void setRecordProvenance(boolean recordProvenance) {
+      this.recordProvenance = recordProvenance;
+    }
+
+    /**
+     * Whether to run the compilation in a Gradle compiler daemon, where annotation processor class
+     * loaders are cached (as with {@link #isCacheProcessorClassLoaders()}) and stay warm across
+     * tasks.
+     *
+     * <p>Only supported with Gradle 4.6 and later, ignored otherwise.
+     */
+    @Internal
+    public boolean isProcessorDaemon() {
+      return processorDaemon;
+    }
+
+    public void setProcessorDaemon(boolean processorDaemon) {
+      this.processorDaemon = processorDaemon;
+    }
+
+    /**
+     * The maximum heap size of the compiler daemon, e.g. {@code "1g"}.
+     *
+     * @see #isProcessorDaemon()
+     */
+    @Internal
+    @Nullable
+    public String getProcessorDaemonMaxHeapSize() {
+      return processorDaemonMaxHeapSize;
+    }
+
+    public void setProcessorDaemonMaxHeapSize(@Nullable String processorDaemonMaxHeapSize) {
+      this.processorDaemonMaxHeapSize = processorDaemonMaxHeapSize;
+    }
+
+    /**
+     * The maximum number of cached annotation processor class loaders; defaults to the {@code
+     * net.ltgt.apt.processorClassLoaderCacheSize} system property, or 8.
+     */
+    @Internal
+    @Nullable
+    public Integer getProcessorClassLoaderCacheSize() {
+      return processorClassLoaderCacheSize;
+    }
+
+    public void setProcessorClassLoaderCacheSize(@Nullable Integer processorClassLoaderCacheSize) {
+      this.processorClassLoaderCacheSize = processorClassLoaderCacheSize;
+    }
+
+    /**
+     * How long (in seconds) cached annotation processor class loaders are kept when unused; zero,
+     * the default, keeps them until they're evicted by newer ones or garbage collected.
+     */
+    @Internal
+    public int getProcessorClassLoaderIdleTimeout() {
+      return processorClassLoaderIdleTimeout;
+    }
+
+    public void setProcessorClassLoaderIdleTimeout(int processorClassLoaderIdleTimeout) {
+      this.processorClassLoaderIdleTimeout = processorClassLoaderIdleTimeout;
+    }
+
+    /** Copies these options to the given ones, for another task working on the same sources. */
+    void copyTo(AptOptions target) {
+      target.annotationProcessing = annotationProcessing;
+      target.processors = processors == null ? null : new ArrayList<>(processors);
+      target.processorArgs = processorArgs == null ? null : new LinkedHashMap<>(processorArgs);
+      target.incremental = incremental;
+      target.deleteStaleGeneratedFiles = deleteStaleGeneratedFiles;
+      target.normalizeGeneratedSources = normalizeGeneratedSources;
+      target.stagingGeneratedSources = stagingGeneratedSources;
+      target.cacheProcessorClassLoaders = cacheProcessorClassLoaders;
+      target.uncachedProcessors =
+          uncachedProcessors == null ? null : new ArrayList<>(uncachedProcessors);
+      target.profileProcessors = profileProcessors;
+      target.profileProcessorAllocations = profileProcessorAllocations;
+      target.processorAllocationBudget = processorAllocationBudget;
+      target.recordProvenance = recordProvenance;
+      target.processorDaemon = processorDaemon;
+      target.processorDaemonMaxHeapSize = processorDaemonMaxHeapSize;
+      target.processorClassLoaderCacheSize = processorClassLoaderCacheSize;
+      target.processorClassLoaderIdleTimeout = processorClassLoaderIdleTimeout;
+      target.processorArguments.clear();
+      target.processorArguments.putAll(processorArguments);
+    }
+
     protected List<String> asArguments() {
       ArrayList<String> arguments = new ArrayList<>();
       if (!annotationProcessing) {
@@ -314,24 +976,40 @@ public class AptPlugin implements Plugin<Project> {
       }
       if (processors != null && !processors.isEmpty()) {
         arguments.add("-processor");
-        StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        for (Object processor : processors) {
-          if (!first) {
-            sb.append(',');
-          } else {
-            first = false;
-          }
-          sb.append(processor);
+        arguments.add(joinProcessors());
+      }
+      addProcessorArgs(arguments);
+      return arguments;
+    }
+
+    String joinProcessors() {
+      return join(processors);
+    }
+
+    static String join(List<?> processors) {
+      StringBuilder sb = new StringBuilder();
+      boolean first = true;
+      for (Object processor : processors) {
+        if (!first) {
+          sb.append(',');
+        } else {
+          first = false;
         }
-        arguments.add(sb.toString());
+        sb.append(processor);
       }
+      return sb.toString();
+    }
+
+    void addProcessorArgs(List<String> arguments) {
       if (processorArgs != null) {
         for (Map.Entry<String, ?> entry : processorArgs.entrySet()) {
           arguments.add("-A" + entry.getKey() + "=" + entry.getValue());
         }
       }
-      return arguments;
+      for (ProcessorArgument argument : processorArguments.values()) {
+        String value = argument.getValue(this);
+        arguments.add("-A" + argument.getName() + (value == null ? "" : "=" + value));
+      }
     }
   }
 
@@ -342,11 +1020,29 @@ public class AptPlugin implements Plugin<Project> {
     protected final Project project;
     protected final SourceSet sourceSet;
 
+    private boolean separateAnnotationProcessing;
+
     public AptSourceSetConvention(Project project, SourceSet sourceSet) {
       this.project = project;
       this.sourceSet = sourceSet;
     }
 
+    /**
+     * Whether annotation processing should run in a separate {@code
+     * generate<SourceSet>AnnotatedSources} task, with the Java compile task only compiling the
+     * sources (including the generated ones).
+     *
+     * <p>Only supported with Gradle 4.6 and later. Must be set before the project has been
+     * evaluated.
+     */
+    public boolean isSeparateAnnotationProcessing() {
+      return separateAnnotationProcessing;
+    }
+
+    public void setSeparateAnnotationProcessing(boolean separateAnnotationProcessing) {
+      this.separateAnnotationProcessing = separateAnnotationProcessing;
+    }
+
     @Nullable
     public abstract FileCollection getAnnotationProcessorPath();
 
@@ -29,7 +29,7 @@ class AptPlugin25to211 extends AptPlugin.Impl {
 
   @Override
   protected void configureCompileTask(
-      Project project, final AbstractCompile task, final CompileOptions compileOptions) {
+      final Project project, final AbstractCompile task, final CompileOptions compileOptions) {
     property(
         getInputs(task),
         "aptOptions.annotationProcessing",
@@ -67,8 +67,24 @@ class AptPlugin25to211 extends AptPlugin.Impl {
           }
         });
 
-    files(
+    final ProcessorPathCache processorPathCache = ProcessorPathCache.forBuild(project.getGradle());
+    optionalProperty(
         getInputs(task),
+        "aptOptions.processorpath",
+        new Callable<Object>() {
+          @Override
+          public Object call() {
+            FileCollection processorpath =
+                task.getConvention()
+                    .getPlugin(AptPlugin.AptConvention.class)
+                    .getAptOptions()
+                    .getProcessorpath();
+            return processorpath == null ? null : processorPathCache.fingerprint(processorpath);
+          }
+        });
+    // The processor path is only tracked through its fingerprint, so its build dependencies have
+    // to be declared explicitly.
+    task.dependsOn(
         new Callable<Object>() {
           @Override
           public Object call() {
@@ -292,5 +308,10 @@ class AptPlugin25to211 extends AptPlugin.Impl {
     public void setProcessorpath(@Nullable Object processorpath) {
       this.processorpath = processorpath;
     }
+
+    @Override
+    protected FileCollection files(Object paths) {
+      return project.files(paths);
+    }
   }
 }
@@ -28,7 +28,7 @@ class AptPlugin30to33 extends AptPlugin.Impl {
 
   @Override
   protected void configureCompileTask(
-      Project project, final AbstractCompile task, final CompileOptions compileOptions) {
+      final Project project, final AbstractCompile task, final CompileOptions compileOptions) {
     property(
         task.getInputs(),
         "aptOptions.annotationProcessing",
@@ -66,19 +66,33 @@ class AptPlugin30to33 extends AptPlugin.Impl {
           }
         });
 
-    task.getInputs()
-        .files(
-            new Callable<Object>() {
-              @Override
-              public Object call() {
-                return task.getConvention()
+    final ProcessorPathCache processorPathCache = ProcessorPathCache.forBuild(project.getGradle());
+    optionalProperty(
+        task.getInputs(),
+        "aptOptions.processorpath",
+        new Callable<Object>() {
+          @Override
+          public Object call() {
+            FileCollection processorpath =
+                task.getConvention()
                     .getPlugin(AptPlugin.AptConvention.class)
                     .getAptOptions()
                     .getProcessorpath();
-              }
-            })
-        .withPropertyName("aptOptions.processorpath")
-        .optional();
+            return processorpath == null ? null : processorPathCache.fingerprint(processorpath);
+          }
+        });
+    // The processor path is only tracked through its fingerprint, so its build dependencies have
+    // to be declared explicitly.
+    task.dependsOn(
+        new Callable<Object>() {
+          @Override
+          public Object call() {
+            return task.getConvention()
+                .getPlugin(AptPlugin.AptConvention.class)
+                .getAptOptions()
+                .getProcessorpath();
+          }
+        });
 
     task.getOutputs()
         .dir(
@@ -264,5 +278,10 @@ class AptPlugin30to33 extends AptPlugin.Impl {
     public void setProcessorpath(@Nullable Object processorpath) {
       this.processorpath = processorpath;
     }
+
+    @Override
+    protected FileCollection files(Object paths) {
+      return project.files(paths);
+    }
   }
 }
@@ -271,5 +271,10 @@ class AptPlugin34to42 extends AptPlugin.Impl {
         compileOptions.setAnnotationProcessorPath(project.files(processorpath));
       }
     }
+
+    @Override
+    protected FileCollection files(Object paths) {
+      return project.files(paths);
+    }
   }
 }
@@ -9,6 +9,7 @@ import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.compile.CompileOptions;
@@ -84,6 +85,25 @@ class AptPlugin43to44 extends AptPlugin.Impl {
         });
   }
 
+  @Override
+  protected File getGeneratedSourcesDestinationDir(
+      AbstractCompile task, CompileOptions compileOptions) {
+    return compileOptions.getAnnotationProcessorGeneratedSourcesDirectory();
+  }
+
+  @Override
+  protected Action<Callable<File>> getGeneratedSourcesDestinationDirSetter(
+      Project project, AbstractCompile task, final CompileOptions compileOptions) {
+    final ProviderFactory providers = project.getProviders();
+    return new Action<Callable<File>>() {
+      @Override
+      public void execute(Callable<File> generatedSourcesDir) {
+        compileOptions.setAnnotationProcessorGeneratedSourcesDirectory(
+            providers.provider(generatedSourcesDir));
+      }
+    };
+  }
+
   @Override
   protected AptPlugin.AptSourceSetConvention createAptSourceSetConvention(
       Project project, SourceSet sourceSet) {
@@ -239,5 +259,10 @@ class AptPlugin43to44 extends AptPlugin.Impl {
         compileOptions.setAnnotationProcessorPath(project.files(processorpath));
       }
     }
+
+    @Override
+    protected FileCollection files(Object paths) {
+      return project.files(paths);
+    }
   }
 }
@@ -4,10 +4,13 @@ import java.io.File;
 import java.util.List;
 import java.util.concurrent.Callable;
 import javax.annotation.Nullable;
+import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.compile.AbstractCompile;
@@ -29,9 +32,37 @@ class AptPlugin45 extends AptPlugin.Impl {
   @Override
   protected void configureCompileTask(
       Project project, AbstractCompile task, CompileOptions compileOptions) {
-    compileOptions
-        .getCompilerArgumentProviders()
-        .add(task.getConvention().getPlugin(AptConvention45.class).getAptOptions());
+    final AptOptions45 aptOptions =
+        task.getConvention().getPlugin(AptConvention45.class).getAptOptions();
+    compileOptions.getCompilerArgumentProviders().add(aptOptions);
+
+    task.doFirst(
+        "detect annotation processors",
+        new Action<Task>() {
+          @Override
+          public void execute(Task task) {
+            aptOptions.detectProcessors();
+          }
+        });
+  }
+
+  @Override
+  protected File getGeneratedSourcesDestinationDir(
+      AbstractCompile task, CompileOptions compileOptions) {
+    return compileOptions.getAnnotationProcessorGeneratedSourcesDirectory();
+  }
+
+  @Override
+  protected Action<Callable<File>> getGeneratedSourcesDestinationDirSetter(
+      Project project, AbstractCompile task, final CompileOptions compileOptions) {
+    final ProviderFactory providers = project.getProviders();
+    return new Action<Callable<File>>() {
+      @Override
+      public void execute(Callable<File> generatedSourcesDir) {
+        compileOptions.setAnnotationProcessorGeneratedSourcesDirectory(
+            providers.provider(generatedSourcesDir));
+      }
+    };
   }
 
   @Override
@@ -170,11 +201,15 @@ class AptPlugin45 extends AptPlugin.Impl {
     private final Project project;
     private final AbstractCompile task;
     private final CompileOptions compileOptions;
+    private final ProcessorPathCache processorPathCache;
+
+    private boolean noProcessorsDetected;
 
     private AptOptions45(Project project, AbstractCompile task, CompileOptions compileOptions) {
       this.project = project;
       this.task = task;
       this.compileOptions = compileOptions;
+      this.processorPathCache = ProcessorPathCache.forBuild(project.getGradle());
     }
 
     @Nullable
@@ -195,9 +230,27 @@ class AptPlugin45 extends AptPlugin.Impl {
       }
     }
 
+    @Override
+    protected FileCollection files(Object paths) {
+      return project.files(paths);
+    }
+
+    void detectProcessors() {
+      FileCollection annotationProcessorPath = compileOptions.getAnnotationProcessorPath();
+      noProcessorsDetected =
+          isAnnotationProcessing()
+              && (getProcessors() == null || getProcessors().isEmpty())
+              && annotationProcessorPath != null
+              && !processorPathCache.hasProcessors(annotationProcessorPath);
+    }
+
     @Override
     public List<String> asArguments() {
-      return super.asArguments();
+      List<String> arguments = super.asArguments();
+      if (noProcessorsDetected) {
+        arguments.add("-proc:none");
+      }
+      return arguments;
     }
   }
 }
@@ -1,16 +1,37 @@
 package net.ltgt.gradle.apt;
 
+import static java.util.Collections.singletonMap;
+
 import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.execution.TaskExecutionGraph;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.ConventionMapping;
 import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.ClasspathNormalizer;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.compile.CompileOptions;
+import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.process.CommandLineArgumentProvider;
 
 class AptPlugin46 extends AptPlugin.Impl {
@@ -28,10 +49,194 @@ class AptPlugin46 extends AptPlugin.Impl {
 
   @Override
   protected void configureCompileTask(
-      Project project, AbstractCompile task, CompileOptions compileOptions) {
-    compileOptions
-        .getCompilerArgumentProviders()
-        .add(task.getConvention().getPlugin(AptConvention46.class).getAptOptions());
+      final Project project, final AbstractCompile task, final CompileOptions compileOptions) {
+    final AptOptions46 aptOptions =
+        task.getConvention().getPlugin(AptConvention46.class).getAptOptions();
+    compileOptions.getCompilerArgumentProviders().add(aptOptions);
+    final FileCollection delegatingProcessorPath = project.files(getDelegatingProcessorPath());
+
+    task.getOutputs()
+        .file(
+            new Callable<Object>() {
+              @Override
+              public Object call() {
+                return aptOptions.isTrackingGeneratedFiles()
+                    ? aptOptions.getGenerationManifest()
+                    : null;
+              }
+            })
+        .withPropertyName("aptOptions.generationManifest")
+        .optional();
+    task.getOutputs()
+        .file(
+            new Callable<Object>() {
+              @Override
+              public Object call() {
+                return aptOptions.isProfilingProcessors() ? aptOptions.getTimingsReport() : null;
+              }
+            })
+        .withPropertyName("aptOptions.timingsReport")
+        .optional();
+    task.getOutputs()
+        .file(
+            new Callable<Object>() {
+              @Override
+              public Object call() {
+                return aptOptions.isRecordProvenance() ? aptOptions.getProvenanceManifest() : null;
+              }
+            })
+        .withPropertyName("aptOptions.provenanceManifest")
+        .optional();
+    // The delegated processor path is not on options.annotationProcessorPath, see below. This is
+    // also evaluated to compute task dependencies, so don't detect processors here.
+    task.getInputs()
+        .files(
+            new Callable<Object>() {
+              @Override
+              public Object call() {
+                return aptOptions.isAnnotationProcessing()
+                        && aptOptions.isCachingProcessorClassLoaders()
+                    ? aptOptions.getProcessorPath()
+                    : Collections.emptyList();
+              }
+            })
+        .withPropertyName("aptOptions.delegatedProcessorPath")
+        .withNormalizer(ClasspathNormalizer.class);
+
+    // Done once the build script configured the task, but before its inputs are snapshotted.
+    project
+        .getGradle()
+        .getTaskGraph()
+        .whenReady(
+            new Action<TaskExecutionGraph>() {
+              @Override
+              public void execute(TaskExecutionGraph taskGraph) {
+                if (taskGraph.hasTask(task)) {
+                  if (aptOptions.copiedFrom != null) {
+                    aptOptions.copiedFrom.get().copyTo(aptOptions);
+                  }
+                  addDelegatingProcessorPath(
+                      project, compileOptions, aptOptions, delegatingProcessorPath);
+                  configureProcessorDaemon(task, compileOptions, aptOptions);
+                }
+              }
+            });
+    task.doFirst(
+        "detect annotation processors",
+        new Action<Task>() {
+          @Override
+          public void execute(Task task) {
+            aptOptions.detectProcessors();
+          }
+        });
+    task.doFirst(
+        "delete previous annotation processor reports",
+        new Action<Task>() {
+          @Override
+          public void execute(Task task) {
+            try {
+              Files.deleteIfExists(aptOptions.getTimingsReport().toPath());
+              Files.deleteIfExists(aptOptions.getProvenanceManifest().toPath());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+        });
+  }
+
+  /**
+   * Adds the annotation processing delegate to {@code options.annotationProcessorPath}, when
+   * delegating. The delegate is added even if no processors are then detected on the original
+   * path, as annotation processing is disabled altogether in that case.
+   */
+  private static void addDelegatingProcessorPath(
+      Project project,
+      CompileOptions compileOptions,
+      final AptOptions46 aptOptions,
+      final FileCollection delegatingProcessorPath) {
+    final FileCollection processorPath = compileOptions.getAnnotationProcessorPath();
+    if (processorPath == null) {
+      return;
+    }
+    aptOptions.setProcessorPath(processorPath);
+    compileOptions.setAnnotationProcessorPath(
+        project
+            .files(
+                new Callable<Object>() {
+                  @Override
+                  public Object call() {
+                    if (!aptOptions.isDelegating()) {
+                      return processorPath;
+                    }
+                    if (aptOptions.isCachingProcessorClassLoaders()) {
+                      // javac only loads the delegate, which then loads the actual processors
+                      // from a cached class loader.
+                      return delegatingProcessorPath;
+                    }
+                    return Arrays.asList(processorPath, delegatingProcessorPath);
+                  }
+                })
+            .builtBy(processorPath));
+  }
+
+  /**
+   * Forks the compiler into a processor daemon. This doesn't depend on whether processors are
+   * detected, so the fork options are known before the task's inputs are snapshotted.
+   */
+  private static void configureProcessorDaemon(
+      Task task, CompileOptions compileOptions, AptOptions46 aptOptions) {
+    if (!aptOptions.isAnnotationProcessing()
+        || !aptOptions.isProcessorDaemon()
+        || aptOptions.getProcessorPath() == null) {
+      return;
+    }
+    // Gradle reuses compiler daemons with the same fork options across tasks.
+    compileOptions.setFork(true);
+    String maxHeapSize = aptOptions.getProcessorDaemonMaxHeapSize();
+    if (maxHeapSize != null) {
+      String memoryMaximumSize = compileOptions.getForkOptions().getMemoryMaximumSize();
+      if (memoryMaximumSize != null && !memoryMaximumSize.equals(maxHeapSize)) {
+        throw new InvalidUserDataException(
+            String.format(
+                "%s: aptOptions.processorDaemonMaxHeapSize (%s) conflicts with"
+                    + " options.forkOptions.memoryMaximumSize (%s); only set one of them.",
+                task, maxHeapSize, memoryMaximumSize));
+      }
+      compileOptions.getForkOptions().setMemoryMaximumSize(maxHeapSize);
+    }
+  }
+
+  private static File getDelegatingProcessorPath() {
+    try {
+      return new File(
+          DelegatingProcessor.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  protected <T> Callable<T> deferred(Project project, Callable<T> value) {
+    return new ProviderCallable<>(project.provider(value));
+  }
+
+  @Override
+  protected File getGeneratedSourcesDestinationDir(
+      AbstractCompile task, CompileOptions compileOptions) {
+    return compileOptions.getAnnotationProcessorGeneratedSourcesDirectory();
+  }
+
+  @Override
+  protected Action<Callable<File>> getGeneratedSourcesDestinationDirSetter(
+      Project project, AbstractCompile task, final CompileOptions compileOptions) {
+    final ProviderFactory providers = project.getProviders();
+    return new Action<Callable<File>>() {
+      @Override
+      public void execute(Callable<File> generatedSourcesDir) {
+        compileOptions.setAnnotationProcessorGeneratedSourcesDirectory(
+            providers.provider(generatedSourcesDir));
+      }
+    };
   }
 
   @Override
@@ -56,21 +261,207 @@ class AptPlugin46 extends AptPlugin.Impl {
 
   @Override
   protected void configureCompileTaskForSourceSet(
-      Project project,
-      final SourceSet sourceSet,
-      AbstractCompile task,
-      CompileOptions compileOptions) {
+      Project project, SourceSet sourceSet, AbstractCompile task, CompileOptions compileOptions) {
+    final AptPlugin.AptSourceSetOutputConvention outputConvention =
+        new DslObject(sourceSet.getOutput())
+            .getConvention()
+            .getPlugin(AptPlugin.AptSourceSetOutputConvention.class);
     compileOptions.setAnnotationProcessorGeneratedSourcesDirectory(
         project.provider(
             new Callable<File>() {
               @Override
               public File call() {
-                return new DslObject(sourceSet.getOutput())
+                return outputConvention.getGeneratedSourcesDir();
+              }
+            }));
+  }
+
+  @Override
+  protected void configureSeparateAnnotationProcessing(
+      final Project project, final SourceSet sourceSet) {
+    final File generatedSourcesDir =
+        new DslObject(sourceSet.getOutput())
+            .getConvention()
+            .getPlugin(AptPlugin.AptSourceSetOutputConvention.class)
+            .getGeneratedSourcesDir();
+    if (generatedSourcesDir == null) {
+      return;
+    }
+    // The compile task is only read once needed, i.e. once the build script configured it.
+    final Provider<JavaCompile> compileTask =
+        project.provider(
+            new Callable<JavaCompile>() {
+              @Override
+              public JavaCompile call() {
+                return (JavaCompile)
+                    project.getTasks().getByName(sourceSet.getCompileJavaTaskName());
+              }
+            });
+
+    final JavaCompile generateTask =
+        project
+            .getTasks()
+            .create(sourceSet.getTaskName("generate", "AnnotatedSources"), JavaCompile.class);
+    generateTask.setDescription(
+        "Runs the annotation processors on the " + sourceSet.getName() + " Java source.");
+    generateTask.setSource(sourceSet.getJava());
+    generateTask.setClasspath(
+        project.files(
+            new Callable<FileCollection>() {
+              @Override
+              public FileCollection call() {
+                return compileTask.get().getClasspath();
+              }
+            }));
+    ConventionMapping conventionMapping = new DslObject(generateTask).getConventionMapping();
+    conventionMapping.map(
+        "sourceCompatibility",
+        deferred(
+            project,
+            new Callable<String>() {
+              @Override
+              public String call() {
+                return compileTask.get().getSourceCompatibility();
+              }
+            }));
+    conventionMapping.map(
+        "targetCompatibility",
+        deferred(
+            project,
+            new Callable<String>() {
+              @Override
+              public String call() {
+                return compileTask.get().getTargetCompatibility();
+              }
+            }));
+    // Annotation processors can generate resources and class files too.
+    final File generatedClassesDir =
+        new File(project.getBuildDir(), "generated/resources/apt/" + sourceSet.getName());
+    generateTask.setDestinationDir(generatedClassesDir);
+    CompileOptions generateOptions = generateTask.getOptions();
+    generateOptions
+        .getCompilerArgumentProviders()
+        .add(
+            new CompilerArguments(
+                project.provider(
+                    new Callable<List<String>>() {
+                      @Override
+                      public List<String> call() {
+                        CompileOptions compileOptions = compileTask.get().getOptions();
+                        List<String> arguments = new ArrayList<>();
+                        if (compileOptions.getEncoding() != null) {
+                          arguments.add("-encoding");
+                          arguments.add(compileOptions.getEncoding());
+                        }
+                        arguments.addAll(compileOptions.getCompilerArgs());
+                        return arguments;
+                      }
+                    })));
+    final Provider<AptOptions46> compileAptOptions =
+        project.provider(
+            new Callable<AptOptions46>() {
+              @Override
+              public AptOptions46 call() {
+                return compileTask
+                    .get()
                     .getConvention()
-                    .getPlugin(AptPlugin.AptSourceSetOutputConvention.class)
-                    .getGeneratedSourcesDir();
+                    .getPlugin(AptConvention46.class)
+                    .getAptOptions();
+              }
+            });
+    generateOptions.setAnnotationProcessorPath(
+        project.files(
+            new Callable<FileCollection>() {
+              @Override
+              public FileCollection call() {
+                return compileAptOptions.get().getProcessorPath();
               }
             }));
+    generateOptions.setAnnotationProcessorGeneratedSourcesDirectory(generatedSourcesDir);
+    final AptOptions46 generateAptOptions =
+        generateTask.getConvention().getPlugin(AptConvention46.class).getAptOptions();
+    generateAptOptions.copiedFrom = compileAptOptions;
+    generateAptOptions.generateOnly = true;
+    // Options are copied from the compile task once the task graph is ready, so this is skipped if
+    // its aptOptions.annotationProcessing is false. Previously generated files are then ignored.
+    generateTask.onlyIf(
+        new Spec<Task>() {
+          @Override
+          public boolean isSatisfiedBy(Task task) {
+            return generateAptOptions.isAnnotationProcessing();
+          }
+        });
+    sourceSet
+        .getOutput()
+        .dir(
+            singletonMap("builtBy", generateTask),
+            new Callable<Object>() {
+              @Override
+              public Object call() {
+                return generateAptOptions.isAnnotationProcessing()
+                    ? generatedClassesDir
+                    : Collections.emptyList();
+              }
+            });
+
+    CompatibilityUtils.configureTask(
+        project.getTasks().withType(JavaCompile.class),
+        sourceSet.getCompileJavaTaskName(),
+        new Action<JavaCompile>() {
+          @Override
+          public void execute(JavaCompile compileTask) {
+            AptOptions46 aptOptions =
+                compileTask.getConvention().getPlugin(AptConvention46.class).getAptOptions();
+            aptOptions.processedSeparately = true;
+            compileTask.getOptions().setAnnotationProcessorGeneratedSourcesDirectory((File) null);
+            compileTask.source(
+                new Callable<Object>() {
+                  @Override
+                  public Object call() {
+                    return generateAptOptions.isAnnotationProcessing()
+                        ? generatedSourcesDir
+                        : Collections.emptyList();
+                  }
+                });
+            compileTask.dependsOn(generateTask);
+          }
+        });
+  }
+
+  /** Compiler arguments computed from another task's options. */
+  private static class CompilerArguments implements CommandLineArgumentProvider {
+    private final Provider<List<String>> arguments;
+
+    CompilerArguments(Provider<List<String>> arguments) {
+      this.arguments = arguments;
+    }
+
+    @Input
+    public List<String> getArguments() {
+      return arguments.get();
+    }
+
+    @Override
+    public Iterable<String> asArguments() {
+      return getArguments();
+    }
+  }
+
+  /**
+   * Computes its value from a {@link Provider}, whose value is stored in the configuration cache
+   * rather than the project it's been computed from.
+   */
+  private static class ProviderCallable<T> implements Callable<T> {
+    private final Provider<T> provider;
+
+    ProviderCallable(Provider<T> provider) {
+      this.provider = provider;
+    }
+
+    @Override
+    public T call() {
+      return provider.get();
+    }
   }
 
   private static class AptSourceSetConvention46 extends AptPlugin.AptSourceSetConvention {
@@ -144,14 +535,74 @@ class AptPlugin46 extends AptPlugin.Impl {
 
   private static class AptOptions46 extends AptPlugin.AptOptions
       implements CommandLineArgumentProvider {
-    private final Project project;
-    private final AbstractCompile task;
+    // The project and task are only used while configuring; at execution time, the options are
+    // possibly deserialized from the configuration cache, so use providers instead.
+    private final transient Project project;
+    private final transient AbstractCompile task;
     private final CompileOptions compileOptions;
+    private final File gradleUserHomeDir;
+    // Not restored from the configuration cache, where each task then has its own.
+    @Nullable private transient ProcessorPathCache processorPathCache;
+    private final Provider<File> generationManifest;
+    private final Provider<File> timingsReport;
+    private final Provider<File> provenanceManifest;
+    private final Provider<File> destinationDir;
+
+    // Detected each time the task executes, never restored from the configuration cache.
+    private transient boolean noProcessorsDetected;
+    /** Whether to only run annotation processing, without compiling, i.e. {@code -proc:only}. */
+    boolean generateOnly;
+    /**
+     * The options to copy once the task graph is ready, i.e. those of the compile task whose
+     * sources this task generates.
+     */
+    @Nullable transient Provider<AptOptions46> copiedFrom;
+    /** Whether annotation processing runs in a separate task, disabling it in this one. */
+    boolean processedSeparately;
+    /** The processor path, before the annotation processing delegate has been added to it. */
+    @Nullable private FileCollection processorPath;
 
-    private AptOptions46(Project project, AbstractCompile task, CompileOptions compileOptions) {
+    private AptOptions46(
+        final Project project, final AbstractCompile task, CompileOptions compileOptions) {
       this.project = project;
       this.task = task;
       this.compileOptions = compileOptions;
+      this.gradleUserHomeDir = project.getGradle().getGradleUserHomeDir();
+      this.processorPathCache = ProcessorPathCache.forBuild(project.getGradle());
+      this.generationManifest =
+          project.provider(
+              new Callable<File>() {
+                @Override
+                public File call() {
+                  return new File(task.getTemporaryDir(), "generation-manifest");
+                }
+              });
+      this.timingsReport =
+          project.provider(
+              new Callable<File>() {
+                @Override
+                public File call() {
+                  return AptTimingsReport.getTimingsReport(project, task.getName());
+                }
+              });
+      this.provenanceManifest =
+          project.provider(
+              new Callable<File>() {
+                @Override
+                public File call() {
+                  return new File(
+                      project.getBuildDir(),
+                      "reports/apt/" + task.getName() + "/provenance-manifest.bin");
+                }
+              });
+      this.destinationDir =
+          project.provider(
+              new Callable<File>() {
+                @Override
+                public File call() {
+                  return task.getDestinationDir();
+                }
+              });
     }
 
     @Internal
@@ -171,9 +622,202 @@ class AptPlugin46 extends AptPlugin.Impl {
       }
     }
 
+    @Override
+    protected FileCollection files(Object paths) {
+      return project.files(paths);
+    }
+
+    @Nullable
+    @Override
+    protected Object resolve(@Nullable Object value) {
+      if (value instanceof Provider) {
+        return ((Provider<?>) value).getOrNull();
+      }
+      return super.resolve(value);
+    }
+
+    @Internal
+    File getGenerationManifest() {
+      return generationManifest.get();
+    }
+
+    @Internal
+    File getTimingsReport() {
+      return timingsReport.get();
+    }
+
+    @Internal
+    File getProvenanceManifest() {
+      return provenanceManifest.get();
+    }
+
+    boolean isDelegating() {
+      return isAnnotationProcessing()
+          && (isTrackingGeneratedFiles()
+              || isCachingProcessorClassLoaders()
+              || isProfilingProcessors()
+              || isRecordProvenance())
+          && getProcessorPath() != null;
+    }
+
+    boolean isTrackingGeneratedFiles() {
+      return isIncremental() || isDeleteStaleGeneratedFiles();
+    }
+
+    boolean isProfilingProcessors() {
+      return isProfileProcessors() || isProfilingAllocations();
+    }
+
+    boolean isProfilingAllocations() {
+      return isProfileProcessorAllocations() || getProcessorAllocationBudget() != null;
+    }
+
+    boolean isCachingProcessorClassLoaders() {
+      return isCacheProcessorClassLoaders() || isProcessorDaemon();
+    }
+
+    private ProcessorPathCache getProcessorPathCache() {
+      if (processorPathCache == null) {
+        processorPathCache = new ProcessorPathCache(gradleUserHomeDir);
+      }
+      return processorPathCache;
+    }
+
+    @Nullable
+    FileCollection getProcessorPath() {
+      return processorPath != null ? processorPath : compileOptions.getAnnotationProcessorPath();
+    }
+
+    void setProcessorPath(FileCollection processorPath) {
+      this.processorPath = processorPath;
+    }
+
+    void detectProcessors() {
+      FileCollection processorPath = getProcessorPath();
+      noProcessorsDetected =
+          isAnnotationProcessing()
+              && (getProcessors() == null || getProcessors().isEmpty())
+              && processorPath != null
+              && !getProcessorPathCache().hasProcessors(processorPath);
+    }
+
+    @Override
+    public boolean isAnnotationProcessing() {
+      return !processedSeparately && super.isAnnotationProcessing();
+    }
+
     @Override
     public List<String> asArguments() {
-      return super.asArguments();
+      List<String> arguments = computeArguments();
+      // super.asArguments() already added -proc:none if annotation processing is disabled.
+      if (generateOnly && isAnnotationProcessing()) {
+        arguments.add("-proc:only");
+      } else if (processedSeparately && super.isAnnotationProcessing()) {
+        arguments.add("-proc:none");
+      }
+      return arguments;
+    }
+
+    private List<String> computeArguments() {
+      if (noProcessorsDetected) {
+        List<String> arguments = super.asArguments();
+        if (!generateOnly) {
+          arguments.add("-proc:none");
+        }
+        return arguments;
+      }
+      if (!isDelegating()) {
+        return super.asArguments();
+      }
+      List<String> arguments = new ArrayList<>();
+      arguments.add("-processor");
+      arguments.add(DelegatingProcessor.class.getName());
+      if (getProcessors() != null && !getProcessors().isEmpty()) {
+        arguments.add("-A" + DelegatingProcessor.PROCESSORS_OPTION + "=" + joinProcessors());
+      }
+      if (isTrackingGeneratedFiles()) {
+        if (!compileOptions.isIncremental()) {
+          // All sources are compiled, so every file that isn't generated again is stale.
+          arguments.add("-A" + DelegatingProcessor.FULL_PROCESSING_OPTION + "=true");
+        }
+        arguments.add(
+            "-A"
+                + DelegatingProcessor.GENERATION_MANIFEST_OPTION
+                + "="
+                + getGenerationManifest().getPath());
+        arguments.add(
+            "-A"
+                + DelegatingProcessor.CLASS_OUTPUT_OPTION
+                + "="
+                + destinationDir.get().getPath());
+        File generatedSourcesDirectory =
+            compileOptions.getAnnotationProcessorGeneratedSourcesDirectory();
+        if (generatedSourcesDirectory != null) {
+          arguments.add(
+              "-A"
+                  + DelegatingProcessor.SOURCE_OUTPUT_OPTION
+                  + "="
+                  + generatedSourcesDirectory.getPath());
+        }
+      }
+      if (isProfilingProcessors()) {
+        arguments.add(
+            "-A" + DelegatingProcessor.TIMINGS_REPORT_OPTION + "=" + getTimingsReport().getPath());
+      }
+      if (isProfilingAllocations()) {
+        arguments.add("-A" + DelegatingProcessor.PROFILE_ALLOCATIONS_OPTION + "=true");
+      }
+      if (getProcessorAllocationBudget() != null) {
+        arguments.add(
+            "-A"
+                + DelegatingProcessor.ALLOCATION_BUDGET_OPTION
+                + "="
+                + getProcessorAllocationBudget());
+      }
+      if (isRecordProvenance()) {
+        arguments.add(
+            "-A"
+                + DelegatingProcessor.PROVENANCE_MANIFEST_OPTION
+                + "="
+                + getProvenanceManifest().getPath());
+      }
+      if (isCachingProcessorClassLoaders()) {
+        List<File> delegatedProcessorPath = getProcessorPathCache().getFiles(getProcessorPath());
+        String delegatedProcessorPathKey = getProcessorPathCache().hash(delegatedProcessorPath);
+        StringBuilder processorPath = new StringBuilder();
+        for (File file : delegatedProcessorPath) {
+          if (processorPath.length() > 0) {
+            processorPath.append(File.pathSeparatorChar);
+          }
+          processorPath.append(file.getPath());
+        }
+        arguments.add("-A" + DelegatingProcessor.PROCESSOR_PATH_OPTION + "=" + processorPath);
+        arguments.add(
+            "-A" + DelegatingProcessor.PROCESSOR_PATH_KEY_OPTION + "=" + delegatedProcessorPathKey);
+        if (getProcessorClassLoaderCacheSize() != null) {
+          arguments.add(
+              "-A"
+                  + DelegatingProcessor.CLASS_LOADER_CACHE_SIZE_OPTION
+                  + "="
+                  + getProcessorClassLoaderCacheSize());
+        }
+        if (getProcessorClassLoaderIdleTimeout() > 0) {
+          arguments.add(
+              "-A"
+                  + DelegatingProcessor.CLASS_LOADER_IDLE_TIMEOUT_OPTION
+                  + "="
+                  + getProcessorClassLoaderIdleTimeout());
+        }
+        if (getUncachedProcessors() != null && !getUncachedProcessors().isEmpty()) {
+          arguments.add(
+              "-A"
+                  + DelegatingProcessor.UNCACHED_PROCESSORS_OPTION
+                  + "="
+                  + join(getUncachedProcessors()));
+        }
+      }
+      addProcessorArgs(arguments);
+      return arguments;
     }
   }
 }
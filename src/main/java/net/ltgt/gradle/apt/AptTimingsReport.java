@@ -0,0 +1,149 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.compile.AbstractCompile;
+
+/**
+ * Aggregates the annotation processor timings reported by the compile tasks of all projects into a
+ * single JSON report.
+ *
+ * <p>The task is only added to the root project, when the plugin is applied to it. Only the reports
+ * of existing compile tasks are aggregated; those tasks delete their report when they run without
+ * profiling processors.
+ *
+ * @see AptPlugin.AptOptions#isProfileProcessors()
+ */
+public class AptTimingsReport extends DefaultTask {
+  static final String TASK_NAME = "aptTimingsReport";
+  private static final String TIMINGS_REPORT_NAME = "processor-timings.json";
+
+  private File destination;
+  private Callable<Map<String, File>> reports;
+  private final FileCollection reportFiles;
+
+  public AptTimingsReport() {
+    setGroup("help");
+    setDescription("Aggregates the annotation processor timings of all projects.");
+    destination = new File(getProject().getBuildDir(), "reports/apt/" + TIMINGS_REPORT_NAME);
+    // Compile tasks are referenced by path (and name, below), so they're only created, if they
+    // haven't been already, when this task is part of the build.
+    mustRunAfter(
+        new Callable<Set<String>>() {
+          @Override
+          public Set<String> call() throws Exception {
+            return reports.call().keySet();
+          }
+        });
+    reports =
+        new Callable<Map<String, File>>() {
+          @Override
+          public Map<String, File> call() {
+            Map<String, File> reports = new TreeMap<>();
+            for (Project project : getProject().getAllprojects()) {
+              String projectPath = project.getPath().equals(":") ? "" : project.getPath();
+              Set<String> taskNames = project.getTasks().withType(AbstractCompile.class).getNames();
+              for (String taskName : taskNames) {
+                reports.put(projectPath + ":" + taskName, getTimingsReport(project, taskName));
+              }
+            }
+            return reports;
+          }
+        };
+    reportFiles =
+        getProject()
+            .files(
+                new Callable<Collection<File>>() {
+                  @Override
+                  public Collection<File> call() throws Exception {
+                    return reports.call().values();
+                  }
+                });
+  }
+
+  static File getTimingsReport(Project project, String taskName) {
+    return new File(project.getBuildDir(), "reports/apt/" + taskName + "/" + TIMINGS_REPORT_NAME);
+  }
+
+  @OutputFile
+  public File getDestination() {
+    return destination;
+  }
+
+  public void setDestination(Object destination) {
+    this.destination = getProject().file(destination);
+  }
+
+  /** The timings report of each compile task, by task path; not all of them exist. */
+  @Internal
+  Callable<Map<String, File>> getReports() {
+    return reports;
+  }
+
+  void setReports(Callable<Map<String, File>> reports) {
+    this.reports = reports;
+  }
+
+  @InputFiles
+  public FileCollection getReportFiles() {
+    return reportFiles;
+  }
+
+  @TaskAction
+  public void aggregate() throws Exception {
+    List<String> paths = new ArrayList<>();
+    List<File> reports = new ArrayList<>();
+    for (Map.Entry<String, File> report : this.reports.call().entrySet()) {
+      if (report.getValue().isFile()) {
+        paths.add(report.getKey());
+        reports.add(report.getValue());
+      }
+    }
+
+    try {
+      Files.createDirectories(destination.getParentFile().toPath());
+      write(paths, reports);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    getLogger()
+        .lifecycle(
+            "Annotation processor timings of {} task(s) aggregated in {}",
+            reports.size(),
+            destination);
+  }
+
+  private void write(List<String> paths, List<File> reports) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(destination.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("{\n  \"tasks\": [");
+      for (int i = 0; i < reports.size(); i++) {
+        writer.write(i == 0 ? "\n" : ",\n");
+        writer.write("    {\n");
+        writer.write("      \"path\": " + ProcessorTimings.quote(paths.get(i)) + ",\n");
+        writer.write("      \"report\": ");
+        byte[] report = Files.readAllBytes(reports.get(i).toPath());
+        writer.write(new String(report, StandardCharsets.UTF_8).trim());
+        writer.write("\n    }");
+      }
+      writer.write(reports.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+  }
+}
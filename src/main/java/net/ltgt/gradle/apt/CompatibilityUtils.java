@@ -1,9 +1,13 @@
 package net.ltgt.gradle.apt;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import org.gradle.api.Action;
+import org.gradle.api.DomainObjectCollection;
 import org.gradle.api.Task;
+import org.gradle.api.tasks.TaskCollection;
 import org.gradle.api.tasks.TaskInputs;
 import org.gradle.api.tasks.TaskOutputs;
 import org.gradle.plugins.ide.api.FileContentMerger;
@@ -11,35 +15,126 @@ import org.gradle.plugins.ide.api.FileContentMerger;
 /**
  * Some methods have changed signature across Gradle versions, this class uses reflection to
  * mitigate this and ensure compatibility.
+ *
+ * <p>Methods are looked up once, and bound to method handles whose type is independent of the
+ * Gradle version, so they can be invoked with {@link MethodHandle#invokeExact} without the
+ * overhead of {@link Method#invoke}.
  */
 class CompatibilityUtils {
 
-  private static final Method taskGetInputsMethod;
-  private static final Method taskGetOutputsMethod;
-  private static final Method taskInputsFilesMethod;
-  private static final Method taskInputsPropertyMethod;
-  private static final Method taskOutputsDirMethod;
-  private static final Method taskInputPropertyBuilderOptionalMethod;
-  private static final Method fileContentMergerGetBeforeMergedMethod;
-  private static final Method fileContentMergerGetWhenMergedMethod;
+  private static final MethodHandle taskGetInputsMethod;
+  private static final MethodHandle taskGetOutputsMethod;
+  private static final MethodHandle taskInputsFilesMethod;
+  private static final MethodHandle taskInputFilePropertyBuilderWithPropertyNameMethod;
+  private static final MethodHandle taskInputFilePropertyBuilderWithPathSensitivityMethod;
+  private static final Class<?> pathSensitivityClass;
+  private static final MethodHandle taskInputsPropertyMethod;
+  private static final MethodHandle taskOutputsDirMethod;
+  private static final MethodHandle taskOutputsDirsMethod;
+  private static final MethodHandle taskOutputsFilesMethod;
+  private static final MethodHandle taskOutputFilePropertyBuilderWithPropertyNameMethod;
+  private static final MethodHandle taskInputPropertyBuilderOptionalMethod;
+  private static final MethodHandle fileContentMergerGetBeforeMergedMethod;
+  private static final MethodHandle fileContentMergerGetWhenMergedMethod;
+  private static final MethodHandle domainObjectCollectionConfigureEachMethod;
+  private static final MethodHandle taskCollectionNamedMethod;
+  private static final MethodHandle taskProviderConfigureMethod;
+  private static final MethodHandle taskNotCompatibleWithConfigurationCacheMethod;
 
   static {
-    taskGetInputsMethod = getMethod(Task.class, "getInputs");
-    taskGetOutputsMethod = getMethod(Task.class, "getOutputs");
+    taskGetInputsMethod =
+        unreflect(
+            getMethod(Task.class, "getInputs"),
+            MethodType.methodType(TaskInputs.class, Task.class));
+    taskGetOutputsMethod =
+        unreflect(
+            getMethod(Task.class, "getOutputs"),
+            MethodType.methodType(TaskOutputs.class, Task.class));
 
-    taskInputsFilesMethod = getMethod(TaskInputs.class, "files", Object[].class);
-    taskInputsPropertyMethod = getMethod(TaskInputs.class, "property", String.class, Object.class);
-    taskOutputsDirMethod = getMethod(TaskOutputs.class, "dir", Object.class);
+    taskInputsFilesMethod =
+        unreflect(
+            getMethod(TaskInputs.class, "files", Object[].class),
+            MethodType.methodType(Object.class, TaskInputs.class, Object[].class));
+    Class<?> taskInputFilePropertyBuilderClass =
+        classForName("org.gradle.api.tasks.TaskInputFilePropertyBuilder");
+    taskInputFilePropertyBuilderWithPropertyNameMethod =
+        taskInputFilePropertyBuilderClass == null
+            ? null
+            : unreflect(
+                getMethod(taskInputFilePropertyBuilderClass, "withPropertyName", String.class),
+                MethodType.methodType(void.class, Object.class, String.class));
+    pathSensitivityClass = classForName("org.gradle.api.tasks.PathSensitivity");
+    taskInputFilePropertyBuilderWithPathSensitivityMethod =
+        pathSensitivityClass == null
+            ? null
+            : unreflect(
+                getMethod(
+                    taskInputFilePropertyBuilderClass, "withPathSensitivity", pathSensitivityClass),
+                MethodType.methodType(void.class, Object.class, Object.class));
+    taskInputsPropertyMethod =
+        unreflect(
+            getMethod(TaskInputs.class, "property", String.class, Object.class),
+            MethodType.methodType(Object.class, TaskInputs.class, String.class, Object.class));
+    taskOutputsDirMethod =
+        unreflect(
+            getMethod(TaskOutputs.class, "dir", Object.class),
+            MethodType.methodType(void.class, TaskOutputs.class, Object.class));
+    Method taskOutputsFiles = getMethod(TaskOutputs.class, "files", Object[].class);
+    Method taskOutputsDirs = findMethod(TaskOutputs.class, "dirs", Object[].class);
+    taskOutputsDirsMethod =
+        unreflect(
+            taskOutputsDirs != null ? taskOutputsDirs : taskOutputsFiles,
+            MethodType.methodType(Object.class, TaskOutputs.class, Object[].class));
+    taskOutputsFilesMethod =
+        unreflect(
+            taskOutputsFiles,
+            MethodType.methodType(Object.class, TaskOutputs.class, Object[].class));
+    Class<?> taskOutputFilePropertyBuilderClass =
+        classForName("org.gradle.api.tasks.TaskOutputFilePropertyBuilder");
+    taskOutputFilePropertyBuilderWithPropertyNameMethod =
+        taskOutputFilePropertyBuilderClass == null
+            ? null
+            : unreflect(
+                getMethod(taskOutputFilePropertyBuilderClass, "withPropertyName", String.class),
+                MethodType.methodType(void.class, Object.class, String.class));
 
     Class<?> taskInputPropertyBuilderClass =
         classForName("org.gradle.api.tasks.TaskInputPropertyBuilder");
     taskInputPropertyBuilderOptionalMethod =
         taskInputPropertyBuilderClass == null
             ? null
-            : getMethod(taskInputPropertyBuilderClass, "optional", boolean.class);
+            : unreflect(
+                getMethod(taskInputPropertyBuilderClass, "optional", boolean.class),
+                MethodType.methodType(void.class, Object.class, boolean.class));
+
+    fileContentMergerGetBeforeMergedMethod =
+        unreflect(
+            getMethod(FileContentMerger.class, "getBeforeMerged"),
+            MethodType.methodType(Action.class, FileContentMerger.class));
+    fileContentMergerGetWhenMergedMethod =
+        unreflect(
+            getMethod(FileContentMerger.class, "getWhenMerged"),
+            MethodType.methodType(Action.class, FileContentMerger.class));
 
-    fileContentMergerGetBeforeMergedMethod = getMethod(FileContentMerger.class, "getBeforeMerged");
-    fileContentMergerGetWhenMergedMethod = getMethod(FileContentMerger.class, "getWhenMerged");
+    domainObjectCollectionConfigureEachMethod =
+        unreflect(
+            findMethod(DomainObjectCollection.class, "configureEach", Action.class),
+            MethodType.methodType(void.class, DomainObjectCollection.class, Action.class));
+    taskCollectionNamedMethod =
+        unreflect(
+            findMethod(TaskCollection.class, "named", String.class),
+            MethodType.methodType(Object.class, TaskCollection.class, String.class));
+    Class<?> taskProviderClass = classForName("org.gradle.api.tasks.TaskProvider");
+    taskProviderConfigureMethod =
+        taskProviderClass == null
+            ? null
+            : unreflect(
+                getMethod(taskProviderClass, "configure", Action.class),
+                MethodType.methodType(void.class, Object.class, Action.class));
+    taskNotCompatibleWithConfigurationCacheMethod =
+        unreflect(
+            findMethod(Task.class, "notCompatibleWithConfigurationCache", String.class),
+            MethodType.methodType(void.class, Task.class, String.class));
   }
 
   private static Class<?> classForName(String className) {
@@ -66,62 +161,143 @@ class CompatibilityUtils {
     }
   }
 
+  private static MethodHandle unreflect(Method method, MethodType type) {
+    if (method == null) {
+      return null;
+    }
+    try {
+      return MethodHandles.publicLookup().unreflect(method).asFixedArity().asType(type);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static RuntimeException propagate(Throwable t) {
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t);
+  }
+
   /** {@link Task#getInputs()} changed return type in Gradle 3.0. */
   static TaskInputs getInputs(Task task) {
     try {
-      return (TaskInputs) taskGetInputsMethod.invoke(task);
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      return (TaskInputs) taskGetInputsMethod.invokeExact(task);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
   /** {@link Task#getOutputs()} changed return type in Gradle 3.0. */
   static TaskOutputs getOutputs(Task task) {
     try {
-      return (TaskOutputs) taskGetOutputsMethod.invoke(task);
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      return (TaskOutputs) taskGetOutputsMethod.invokeExact(task);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
-  /** {@link TaskInputs#files(Object...)} changed return type in Gradle 3.0. */
-  static TaskInputs files(TaskInputs inputs, Object... args) {
+  /**
+   * {@link TaskInputs#files(Object...)} changed return type in Gradle 3.0, and the returned
+   * builder no longer is a {@link TaskInputs} in Gradle 5.0.
+   */
+  static void files(TaskInputs inputs, Object... args) {
+    filesBuilder(inputs, args);
+  }
+
+  private static Object filesBuilder(TaskInputs inputs, Object... args) {
     try {
-      return (TaskInputs) taskInputsFilesMethod.invoke(inputs, new Object[] {args});
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      return (Object) taskInputsFilesMethod.invokeExact(inputs, args);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
-  /** {@link TaskInputs#property(String, Object)} changed return type in Gradle 4.3. */
-  static TaskInputs property(TaskInputs inputs, String name, Object value) {
+  /**
+   * Registers input files with a property name and path sensitivity (e.g. {@code "RELATIVE"}),
+   * which were respectively introduced in Gradle 3.0 and 3.1, and are ignored before that.
+   */
+  static void inputFiles(TaskInputs inputs, String name, Object files, String pathSensitivity) {
+    Object builder = filesBuilder(inputs, files);
     try {
-      return (TaskInputs) taskInputsPropertyMethod.invoke(inputs, new Object[] {name, value});
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      if (taskInputFilePropertyBuilderWithPropertyNameMethod != null) {
+        taskInputFilePropertyBuilderWithPropertyNameMethod.invokeExact(builder, name);
+      }
+      if (taskInputFilePropertyBuilderWithPathSensitivityMethod != null) {
+        Object sensitivity = pathSensitivityClass.getField(pathSensitivity).get(null);
+        taskInputFilePropertyBuilderWithPathSensitivityMethod.invokeExact(builder, sensitivity);
+      }
+    } catch (Throwable t) {
+      throw propagate(t);
+    }
+  }
+
+  /**
+   * {@link TaskInputs#property(String, Object)} changed return type in Gradle 4.3, and the
+   * returned builder no longer is a {@link TaskInputs} in Gradle 5.0.
+   */
+  static void property(TaskInputs inputs, String name, Object value) {
+    propertyBuilder(inputs, name, value);
+  }
+
+  private static Object propertyBuilder(TaskInputs inputs, String name, Object value) {
+    try {
+      return (Object) taskInputsPropertyMethod.invokeExact(inputs, name, value);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
   /** {@link org.gradle.api.tasks.TaskInputPropertyBuilder} was introduced in Gradle 4.3. */
-  static TaskInputs optionalProperty(TaskInputs inputs, String name, Object value) {
-    inputs = property(inputs, name, value);
+  static void optionalProperty(TaskInputs inputs, String name, Object value) {
+    Object builder = propertyBuilder(inputs, name, value);
     if (taskInputPropertyBuilderOptionalMethod == null) {
-      return inputs;
+      return;
     }
     try {
-      return (TaskInputs)
-          taskInputPropertyBuilderOptionalMethod.invoke(inputs, new Object[] {true});
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      taskInputPropertyBuilderOptionalMethod.invokeExact(builder, true);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
   /** {@link TaskOutputs#dir(Object)} changed return type in Gradle 3.0. */
   static void dir(TaskOutputs outputs, Object dir) {
     try {
-      taskOutputsDirMethod.invoke(outputs, dir);
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      taskOutputsDirMethod.invokeExact(outputs, dir);
+    } catch (Throwable t) {
+      throw propagate(t);
+    }
+  }
+
+  /**
+   * Registers output directories with a property name; {@code TaskOutputs#dirs(Object...)} was
+   * introduced in Gradle 3.3, directories are registered as output files before that (and property
+   * names are ignored before Gradle 3.0).
+   */
+  static void outputDirs(TaskOutputs outputs, String name, Object dirs) {
+    try {
+      Object builder = (Object) taskOutputsDirsMethod.invokeExact(outputs, new Object[] {dirs});
+      if (taskOutputFilePropertyBuilderWithPropertyNameMethod != null) {
+        taskOutputFilePropertyBuilderWithPropertyNameMethod.invokeExact(builder, name);
+      }
+    } catch (Throwable t) {
+      throw propagate(t);
+    }
+  }
+
+  /**
+   * Registers output files with a property name; {@link TaskOutputs#files(Object...)} changed
+   * return type in Gradle 3.0 (and property names are ignored before that).
+   */
+  static void outputFiles(TaskOutputs outputs, String name, Object files) {
+    try {
+      Object builder = (Object) taskOutputsFilesMethod.invokeExact(outputs, new Object[] {files});
+      if (taskOutputFilePropertyBuilderWithPropertyNameMethod != null) {
+        taskOutputFilePropertyBuilderWithPropertyNameMethod.invokeExact(builder, name);
+      }
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
@@ -129,9 +305,9 @@ class CompatibilityUtils {
   @SuppressWarnings("unchecked")
   static Action<Object> getBeforeMerged(FileContentMerger merger) {
     try {
-      return (Action<Object>) fileContentMergerGetBeforeMergedMethod.invoke(merger);
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      return (Action<Object>) fileContentMergerGetBeforeMergedMethod.invokeExact(merger);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 
@@ -139,9 +315,59 @@ class CompatibilityUtils {
   @SuppressWarnings("unchecked")
   static Action<Object> getWhenMerged(FileContentMerger merger) {
     try {
-      return (Action<Object>) fileContentMergerGetWhenMergedMethod.invoke(merger);
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+      return (Action<Object>) fileContentMergerGetWhenMergedMethod.invokeExact(merger);
+    } catch (Throwable t) {
+      throw propagate(t);
+    }
+  }
+
+  /**
+   * {@link DomainObjectCollection#all(Action)} forces tasks to be created; {@code configureEach}
+   * was introduced in Gradle 4.9 to configure them lazily.
+   */
+  static <T> void configureEach(DomainObjectCollection<T> collection, Action<? super T> action) {
+    if (domainObjectCollectionConfigureEachMethod == null) {
+      collection.all(action);
+      return;
+    }
+    try {
+      // Arguments' static types erase to the method handle's parameter types.
+      domainObjectCollectionConfigureEachMethod.invokeExact(collection, action);
+    } catch (Throwable t) {
+      throw propagate(t);
+    }
+  }
+
+  /**
+   * {@link TaskCollection#getByName(String)} forces the task to be created; {@code named} and
+   * {@code TaskProvider#configure} were introduced in Gradle 4.9 to configure it lazily.
+   */
+  static <T extends Task> void configureTask(
+      TaskCollection<T> tasks, String name, Action<? super T> action) {
+    if (taskCollectionNamedMethod == null || taskProviderConfigureMethod == null) {
+      action.execute(tasks.getByName(name));
+      return;
+    }
+    try {
+      Object taskProvider = taskCollectionNamedMethod.invokeExact(tasks, name);
+      taskProviderConfigureMethod.invokeExact(taskProvider, action);
+    } catch (Throwable t) {
+      throw propagate(t);
+    }
+  }
+
+  /**
+   * {@code Task#notCompatibleWithConfigurationCache(String)} was introduced in Gradle 7.4; with
+   * earlier versions, the configuration cache will report problems instead.
+   */
+  static void notCompatibleWithConfigurationCache(Task task, String reason) {
+    if (taskNotCompatibleWithConfigurationCacheMethod == null) {
+      return;
+    }
+    try {
+      taskNotCompatibleWithConfigurationCacheMethod.invokeExact(task, reason);
+    } catch (Throwable t) {
+      throw propagate(t);
     }
   }
 }
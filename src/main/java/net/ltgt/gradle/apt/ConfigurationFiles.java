@@ -0,0 +1,63 @@
+package net.ltgt.gradle.apt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.plugins.ide.internal.generator.AbstractPersistableConfigurationObject;
+
+/** Utilities for IDE configuration files. */
+final class ConfigurationFiles {
+  private ConfigurationFiles() {
+    // non-instantiable
+  }
+
+  /**
+   * Stores the given object into the given file, leaving the file untouched if its content didn't
+   * change, so the IDE doesn't see it as modified.
+   *
+   * @param ignoreComments whether lines starting with {@code #} should be ignored when comparing
+   *     contents, e.g. the timestamp some Gradle versions write at the top of properties files
+   */
+  static void storeIfChanged(
+      AbstractPersistableConfigurationObject object, File outputFile, boolean ignoreComments) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    object.store(out);
+    byte[] content = out.toByteArray();
+    try {
+      if (outputFile.isFile()
+          && isSameContent(content, Files.readAllBytes(outputFile.toPath()), ignoreComments)) {
+        return;
+      }
+      File parentFile = outputFile.getAbsoluteFile().getParentFile();
+      if (parentFile != null) {
+        Files.createDirectories(parentFile.toPath());
+      }
+      Files.write(outputFile.toPath(), content);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isSameContent(byte[] a, byte[] b, boolean ignoreComments) {
+    if (!ignoreComments) {
+      return Arrays.equals(a, b);
+    }
+    return stripComments(a).equals(stripComments(b));
+  }
+
+  private static String stripComments(byte[] content) {
+    // ISO-8859-1 maps each byte to a char, so this works whatever the actual encoding.
+    String s = new String(content, StandardCharsets.ISO_8859_1);
+    StringBuilder sb = new StringBuilder(s.length());
+    for (String line : s.split("\r?\n")) {
+      if (!line.startsWith("#")) {
+        sb.append(line).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,655 @@
+package net.ltgt.gradle.apt;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * An annotation processor that runs the actual annotation processors, the same way javac would,
+ * to add instrumentation around them.
+ *
+ * <p>This class is put on the annotation processor path by the plugin, so it must only depend on
+ * the JDK.
+ */
+public class DelegatingProcessor implements Processor {
+  static final String OPTION_PREFIX = "net.ltgt.apt.";
+  static final String PROCESSORS_OPTION = OPTION_PREFIX + "processors";
+  static final String GENERATION_MANIFEST_OPTION = OPTION_PREFIX + "generationManifest";
+  static final String FULL_PROCESSING_OPTION = OPTION_PREFIX + "fullProcessing";
+  static final String SOURCE_OUTPUT_OPTION = OPTION_PREFIX + "sourceOutput";
+  static final String CLASS_OUTPUT_OPTION = OPTION_PREFIX + "classOutput";
+  static final String PROCESSOR_PATH_OPTION = OPTION_PREFIX + "processorPath";
+  static final String PROCESSOR_PATH_KEY_OPTION = OPTION_PREFIX + "processorPathKey";
+  static final String UNCACHED_PROCESSORS_OPTION = OPTION_PREFIX + "uncachedProcessors";
+  static final String TIMINGS_REPORT_OPTION = OPTION_PREFIX + "timingsReport";
+  static final String PROFILE_ALLOCATIONS_OPTION = OPTION_PREFIX + "profileAllocations";
+  static final String ALLOCATION_BUDGET_OPTION = OPTION_PREFIX + "allocationBudget";
+  static final String PROVENANCE_MANIFEST_OPTION = OPTION_PREFIX + "provenanceManifest";
+  static final String CLASS_LOADER_CACHE_SIZE_OPTION = OPTION_PREFIX + "classLoaderCacheSize";
+  static final String CLASS_LOADER_IDLE_TIMEOUT_OPTION = OPTION_PREFIX + "classLoaderIdleTimeout";
+
+  static final String PROCESSOR_SERVICE = "META-INF/services/" + Processor.class.getName();
+
+  private static final String PACKAGE_INFO = "package-info";
+  private static final Pattern ALL_ANNOTATIONS = Pattern.compile(".*");
+
+  private final List<Delegate> delegates = new ArrayList<>();
+
+  private ProcessingEnvironment processingEnv;
+
+  @Nullable private File generationManifestFile;
+  @Nullable private GenerationManifest previousManifest;
+  @Nullable private GenerationManifest manifest;
+  private boolean fullProcessing;
+  private final Set<String> processedTypes = new HashSet<>();
+  @Nullable private File timingsReportFile;
+  private boolean profilingAllocations;
+  private long allocationBudget = -1;
+  @Nullable private File provenanceManifestFile;
+  @Nullable private ProvenanceManifest provenance;
+  private int round;
+  // Only used until processing is over.
+  @Nullable private ClassLoader cachedClassLoader;
+  @Nullable private URLClassLoader uncachedClassLoader;
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> supportedOptions = new LinkedHashSet<>();
+    supportedOptions.add(PROCESSORS_OPTION);
+    supportedOptions.add(GENERATION_MANIFEST_OPTION);
+    supportedOptions.add(FULL_PROCESSING_OPTION);
+    supportedOptions.add(SOURCE_OUTPUT_OPTION);
+    supportedOptions.add(CLASS_OUTPUT_OPTION);
+    supportedOptions.add(PROCESSOR_PATH_OPTION);
+    supportedOptions.add(PROCESSOR_PATH_KEY_OPTION);
+    supportedOptions.add(UNCACHED_PROCESSORS_OPTION);
+    supportedOptions.add(TIMINGS_REPORT_OPTION);
+    supportedOptions.add(PROFILE_ALLOCATIONS_OPTION);
+    supportedOptions.add(ALLOCATION_BUDGET_OPTION);
+    supportedOptions.add(PROVENANCE_MANIFEST_OPTION);
+    supportedOptions.add(CLASS_LOADER_CACHE_SIZE_OPTION);
+    supportedOptions.add(CLASS_LOADER_IDLE_TIMEOUT_OPTION);
+    for (Delegate delegate : delegates) {
+      supportedOptions.addAll(delegate.processor.getSupportedOptions());
+    }
+    return supportedOptions;
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public void init(ProcessingEnvironment processingEnv) {
+    this.processingEnv = processingEnv;
+    Map<String, String> options = processingEnv.getOptions();
+
+    String generationManifest = options.get(GENERATION_MANIFEST_OPTION);
+    if (generationManifest != null) {
+      generationManifestFile = new File(generationManifest);
+      try {
+        previousManifest = GenerationManifest.read(generationManifestFile);
+      } catch (IOException e) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Diagnostic.Kind.WARNING,
+                "Cannot read generation manifest, stale generated files won't be deleted: " + e);
+        previousManifest = new GenerationManifest();
+      }
+      manifest = new GenerationManifest();
+      fullProcessing = Boolean.parseBoolean(options.get(FULL_PROCESSING_OPTION));
+    }
+    String timingsReport = options.get(TIMINGS_REPORT_OPTION);
+    if (timingsReport != null) {
+      timingsReportFile = new File(timingsReport);
+      profilingAllocations = Boolean.parseBoolean(options.get(PROFILE_ALLOCATIONS_OPTION));
+      try {
+        allocationBudget = parseLong(options.get(ALLOCATION_BUDGET_OPTION), -1);
+      } catch (NumberFormatException e) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Diagnostic.Kind.ERROR, "Invalid annotation processor allocation budget: " + e);
+      }
+    }
+    String provenanceManifest = options.get(PROVENANCE_MANIFEST_OPTION);
+    if (provenanceManifest != null) {
+      provenanceManifestFile = new File(provenanceManifest);
+      provenance = new ProvenanceManifest();
+    }
+
+    for (Processor processor : loadProcessors(options)) {
+      if (manifest == null && timingsReportFile == null && provenance == null) {
+        processor.init(processingEnv);
+        delegates.add(new Delegate(processor, null, null));
+        continue;
+      }
+      // Each processor gets its own Filer so generated files can be attributed to it.
+      RecordingFiler filer =
+          new RecordingFiler(
+              processingEnv.getFiler(), processor.getClass().getName(), manifest, provenance);
+      ProcessorTimings timings =
+          timingsReportFile == null
+              ? null
+              : new ProcessorTimings(processor.getClass().getName(), profilingAllocations);
+      ProcessorTimings.Snapshot start = timings == null ? null : timings.snapshot();
+      processor.init(new ForwardingProcessingEnvironment(processingEnv, filer));
+      if (timings != null) {
+        timings.setInit(start);
+      }
+      delegates.add(new Delegate(processor, filer, timings));
+    }
+  }
+
+  private List<Processor> loadProcessors(Map<String, String> options) {
+    ClassLoader classLoader = DelegatingProcessor.class.getClassLoader();
+    String processorPath = options.get(PROCESSOR_PATH_OPTION);
+    String processorPathKey = options.get(PROCESSOR_PATH_KEY_OPTION);
+    if (processorPath == null || processorPathKey == null) {
+      return loadProcessors(options.get(PROCESSORS_OPTION), classLoader, null, null);
+    }
+    URL[] urls;
+    try {
+      urls = toURLs(processorPath);
+    } catch (MalformedURLException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Invalid annotation processor path: " + e);
+      return Collections.emptyList();
+    }
+    ClassLoader parent = classLoader.getParent();
+    Set<String> uncachedProcessors = new HashSet<>();
+    String uncachedProcessorsOption = options.get(UNCACHED_PROCESSORS_OPTION);
+    if (uncachedProcessorsOption != null && !uncachedProcessorsOption.isEmpty()) {
+      uncachedProcessors.addAll(Arrays.asList(uncachedProcessorsOption.split(",")));
+    }
+    URLClassLoader uncachedClassLoader =
+        uncachedProcessors.isEmpty() ? null : new URLClassLoader(urls, parent);
+    this.uncachedClassLoader = uncachedClassLoader;
+    ClassLoader cachedClassLoader;
+    try {
+      cachedClassLoader =
+          ProcessorClassLoaderCache.getClassLoader(
+              processorPathKey,
+              urls,
+              parent,
+              parseInt(options.get(CLASS_LOADER_CACHE_SIZE_OPTION), -1),
+              parseInt(options.get(CLASS_LOADER_IDLE_TIMEOUT_OPTION), 0) * 1000L);
+    } catch (NumberFormatException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Invalid class loader cache option: " + e);
+      return Collections.emptyList();
+    }
+    this.cachedClassLoader = cachedClassLoader;
+    return loadProcessors(
+        options.get(PROCESSORS_OPTION), cachedClassLoader, uncachedProcessors, uncachedClassLoader);
+  }
+
+  private static int parseInt(@Nullable String value, int defaultValue) {
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  private static long parseLong(@Nullable String value, long defaultValue) {
+    return value == null ? defaultValue : Long.parseLong(value);
+  }
+
+  private static URL[] toURLs(String processorPath) throws MalformedURLException {
+    List<URL> urls = new ArrayList<>();
+    for (String path : processorPath.split(Pattern.quote(File.pathSeparator))) {
+      if (!path.isEmpty()) {
+        urls.add(new File(path).toURI().toURL());
+      }
+    }
+    return urls.toArray(new URL[urls.size()]);
+  }
+
+  /**
+   * Loads the given processors, or the ones declared as services, from the given class loader;
+   * except for the {@code uncachedProcessors} which are loaded from the {@code
+   * uncachedClassLoader}.
+   */
+  private List<Processor> loadProcessors(
+      @Nullable String processorNames,
+      ClassLoader classLoader,
+      @Nullable Set<String> uncachedProcessors,
+      @Nullable ClassLoader uncachedClassLoader) {
+    List<Processor> processors = new ArrayList<>();
+    Set<String> names = new LinkedHashSet<>();
+    if (processorNames != null) {
+      names.addAll(Arrays.asList(processorNames.split(",")));
+    } else {
+      try {
+        for (URL url : Collections.list(classLoader.getResources(PROCESSOR_SERVICE))) {
+          try (InputStream in = url.openStream()) {
+            names.addAll(parseServiceFile(in));
+          }
+        }
+      } catch (IOException e) {
+        processingEnv
+            .getMessager()
+            .printMessage(Diagnostic.Kind.ERROR, "Cannot load annotation processors: " + e);
+      }
+      names.remove(DelegatingProcessor.class.getName());
+    }
+    for (String name : names) {
+      ClassLoader loader =
+          uncachedClassLoader != null && uncachedProcessors.contains(name)
+              ? uncachedClassLoader
+              : classLoader;
+      try {
+        processors.add(
+            loader.loadClass(name).asSubclass(Processor.class).getConstructor().newInstance());
+      } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Diagnostic.Kind.ERROR,
+                "Cannot instantiate annotation processor '" + name + "': " + e);
+      }
+    }
+    return processors;
+  }
+
+  static Set<String> parseServiceFile(InputStream in) throws IOException {
+    Set<String> names = new LinkedHashSet<>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      line = line.trim();
+      if (!line.isEmpty()) {
+        names.add(line);
+      }
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    round++;
+    if (manifest != null) {
+      for (Element rootElement : roundEnv.getRootElements()) {
+        String topLevelName = getTopLevelName(rootElement);
+        if (topLevelName != null) {
+          processedTypes.add(topLevelName);
+        }
+      }
+    }
+
+    // Mimic javac's logic: every annotation is matched against each processor in turn,
+    // until it's claimed by a processor.
+    Map<String, TypeElement> unmatchedAnnotations = new LinkedHashMap<>();
+    for (TypeElement annotation : annotations) {
+      unmatchedAnnotations.put(annotation.getQualifiedName().toString(), annotation);
+    }
+    // Give "*" processors a chance to match
+    if (unmatchedAnnotations.isEmpty()) {
+      unmatchedAnnotations.put("", null);
+    }
+    Iterator<Delegate> iterator = delegates.iterator();
+    while (!unmatchedAnnotations.isEmpty() && iterator.hasNext()) {
+      Delegate delegate = iterator.next();
+      Set<String> matchedNames = new HashSet<>();
+      Set<TypeElement> typeElements = new LinkedHashSet<>();
+      for (Map.Entry<String, TypeElement> entry : unmatchedAnnotations.entrySet()) {
+        if (delegate.isAnnotationSupported(entry.getKey())) {
+          matchedNames.add(entry.getKey());
+          if (entry.getValue() != null) {
+            typeElements.add(entry.getValue());
+          }
+        }
+      }
+      if (!matchedNames.isEmpty() || delegate.contributed) {
+        boolean claimed = delegate.process(typeElements, roundEnv, round);
+        if (claimed) {
+          unmatchedAnnotations.keySet().removeAll(matchedNames);
+        }
+      }
+    }
+    // Processors that contributed to previous rounds are always run.
+    while (iterator.hasNext()) {
+      Delegate delegate = iterator.next();
+      if (delegate.contributed) {
+        delegate.process(Collections.<TypeElement>emptySet(), roundEnv, round);
+      }
+    }
+
+    if (roundEnv.processingOver() && manifest != null) {
+      updateGenerationManifest(roundEnv.errorRaised());
+    }
+    if (roundEnv.processingOver() && timingsReportFile != null) {
+      writeTimingsReport();
+      checkAllocationBudget();
+    }
+    if (roundEnv.processingOver() && provenance != null) {
+      writeProvenanceManifest();
+    }
+    if (roundEnv.processingOver()) {
+      releaseClassLoaders();
+    }
+    return false;
+  }
+
+  private void releaseClassLoaders() {
+    if (cachedClassLoader != null) {
+      ProcessorClassLoaderCache.release(cachedClassLoader);
+      cachedClassLoader = null;
+    }
+    if (uncachedClassLoader != null) {
+      try {
+        uncachedClassLoader.close();
+      } catch (IOException e) {
+        // best effort, the JAR files will be closed once the class loader is garbage collected
+      }
+      uncachedClassLoader = null;
+    }
+  }
+
+  private void writeTimingsReport() {
+    List<ProcessorTimings> timings = new ArrayList<>();
+    for (Delegate delegate : delegates) {
+      if (delegate.timings != null) {
+        timings.add(delegate.timings);
+      }
+    }
+    try {
+      ProcessorTimings.writeReport(timingsReportFile, timings);
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.WARNING, "Cannot write annotation processor timings: " + e);
+    }
+  }
+
+  private void checkAllocationBudget() {
+    if (allocationBudget < 0) {
+      return;
+    }
+    for (Delegate delegate : delegates) {
+      if (delegate.timings == null) {
+        continue;
+      }
+      long allocatedBytes = delegate.timings.getAllocatedBytes();
+      if (allocatedBytes > allocationBudget) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Diagnostic.Kind.ERROR,
+                "Annotation processor '"
+                    + delegate.timings.getProcessorName()
+                    + "' allocated "
+                    + allocatedBytes
+                    + " bytes, exceeding the budget of "
+                    + allocationBudget
+                    + " bytes");
+      }
+    }
+  }
+
+  private void writeProvenanceManifest() {
+    try {
+      provenance.write(provenanceManifestFile);
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.WARNING, "Cannot write provenance manifest: " + e);
+    }
+  }
+
+  private void updateGenerationManifest(boolean errorRaised) {
+    Messager messager = processingEnv.getMessager();
+    Map<String, File> locations = new LinkedHashMap<>();
+    String classOutput = processingEnv.getOptions().get(CLASS_OUTPUT_OPTION);
+    String sourceOutput = processingEnv.getOptions().get(SOURCE_OUTPUT_OPTION);
+    if (classOutput != null) {
+      locations.put(GenerationManifest.CLASS_OUTPUT, new File(classOutput));
+      locations.put(
+          GenerationManifest.SOURCE_OUTPUT,
+          new File(sourceOutput != null ? sourceOutput : classOutput));
+    }
+    for (GenerationManifest.Entry entry : previousManifest.getEntries()) {
+      if (manifest.get(entry.getKey()) != null) {
+        // regenerated
+        continue;
+      }
+      File location = locations.get(entry.location);
+      if (location == null) {
+        continue;
+      }
+      File file = new File(location, entry.path);
+      if (!file.exists()) {
+        continue;
+      }
+      // Processors may not have generated all their files when failing.
+      if (!errorRaised && isStale(entry)) {
+        if (!file.delete()) {
+          messager.printMessage(
+              Diagnostic.Kind.WARNING, "Cannot delete stale generated file " + file);
+        }
+      } else {
+        // Originating types haven't been processed, keep the generated file
+        manifest.add(entry);
+      }
+    }
+    try {
+      manifest.write(generationManifestFile);
+    } catch (IOException e) {
+      messager.printMessage(
+          Diagnostic.Kind.WARNING, "Cannot write generation manifest: " + e.getMessage());
+    }
+  }
+
+  /**
+   * A generated file is stale if it hasn't been regenerated when processing all sources, or if all
+   * of its originating types have either been processed without regenerating it, or have been
+   * deleted.
+   */
+  private boolean isStale(GenerationManifest.Entry entry) {
+    if (fullProcessing) {
+      return true;
+    }
+    if (entry.originatingTypes.isEmpty()) {
+      return false;
+    }
+    Elements elements = processingEnv.getElementUtils();
+    for (String originatingType : entry.originatingTypes) {
+      if (processedTypes.contains(originatingType)) {
+        continue;
+      }
+      if (originatingType.endsWith(PACKAGE_INFO)) {
+        String packageName =
+            originatingType.substring(
+                0, Math.max(0, originatingType.length() - PACKAGE_INFO.length() - 1));
+        if (elements.getPackageElement(packageName) == null) {
+          continue;
+        }
+      } else if (elements.getTypeElement(originatingType) == null) {
+        continue;
+      }
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public Iterable<? extends Completion> getCompletions(
+      Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+    List<Completion> completions = new ArrayList<>();
+    for (Delegate delegate : delegates) {
+      for (Completion completion :
+          delegate.processor.getCompletions(element, annotation, member, userText)) {
+        completions.add(completion);
+      }
+    }
+    return completions;
+  }
+
+  /**
+   * Returns the qualified name of the top-level type enclosing the given element, or the {@code
+   * package-info} pseudo-type for packages.
+   */
+  @Nullable
+  static String getTopLevelName(Element element) {
+    for (Element e = element; e != null; e = e.getEnclosingElement()) {
+      if (e.getKind() == ElementKind.PACKAGE) {
+        String packageName = ((PackageElement) e).getQualifiedName().toString();
+        return packageName.isEmpty() ? PACKAGE_INFO : packageName + '.' + PACKAGE_INFO;
+      }
+      Element enclosingElement = e.getEnclosingElement();
+      if (e instanceof TypeElement
+          && (enclosingElement == null || enclosingElement.getKind() == ElementKind.PACKAGE)) {
+        return ((TypeElement) e).getQualifiedName().toString();
+      }
+    }
+    return null;
+  }
+
+  private static class Delegate {
+    final Processor processor;
+    @Nullable final RecordingFiler filer;
+    @Nullable final ProcessorTimings timings;
+    final List<Pattern> supportedAnnotations = new ArrayList<>();
+    boolean contributed;
+
+    Delegate(
+        Processor processor,
+        @Nullable RecordingFiler filer,
+        @Nullable ProcessorTimings timings) {
+      this.processor = processor;
+      this.filer = filer;
+      this.timings = timings;
+      for (String supportedAnnotationType : processor.getSupportedAnnotationTypes()) {
+        supportedAnnotations.add(toPattern(supportedAnnotationType));
+      }
+    }
+
+    boolean isAnnotationSupported(String annotationName) {
+      for (Pattern pattern : supportedAnnotations) {
+        if (pattern.matcher(annotationName).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv, int round) {
+      contributed = true;
+      if (timings == null || filer == null) {
+        return processor.process(annotations, roundEnv);
+      }
+      int elements = 0;
+      for (TypeElement annotation : annotations) {
+        elements += roundEnv.getElementsAnnotatedWith(annotation).size();
+      }
+      int generatedFiles = filer.getGeneratedFiles();
+      ProcessorTimings.Snapshot start = timings.snapshot();
+      try {
+        return processor.process(annotations, roundEnv);
+      } finally {
+        timings.addRound(round, start, elements, filer.getGeneratedFiles() - generatedFiles);
+      }
+    }
+
+    private static Pattern toPattern(String supportedAnnotationType) {
+      // Strip the module prefix (Java 9+)
+      String s = supportedAnnotationType.substring(supportedAnnotationType.indexOf('/') + 1);
+      if (s.equals("*")) {
+        return ALL_ANNOTATIONS;
+      }
+      if (s.endsWith(".*")) {
+        return Pattern.compile(Pattern.quote(s.substring(0, s.length() - 1)) + ".+");
+      }
+      return Pattern.compile(Pattern.quote(s));
+    }
+  }
+
+  private static class ForwardingProcessingEnvironment implements ProcessingEnvironment {
+    private final ProcessingEnvironment delegate;
+    private final Filer filer;
+
+    ForwardingProcessingEnvironment(ProcessingEnvironment delegate, Filer filer) {
+      this.delegate = delegate;
+      this.filer = filer;
+    }
+
+    @Override
+    public Map<String, String> getOptions() {
+      return delegate.getOptions();
+    }
+
+    @Override
+    public Messager getMessager() {
+      return delegate.getMessager();
+    }
+
+    @Override
+    public Filer getFiler() {
+      return filer;
+    }
+
+    @Override
+    public Elements getElementUtils() {
+      return delegate.getElementUtils();
+    }
+
+    @Override
+    public Types getTypeUtils() {
+      return delegate.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSourceVersion() {
+      return delegate.getSourceVersion();
+    }
+
+    @Override
+    public Locale getLocale() {
+      return delegate.getLocale();
+    }
+  }
+}
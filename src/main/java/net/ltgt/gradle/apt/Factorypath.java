@@ -23,6 +23,11 @@ public class Factorypath extends XmlPersistableConfigurationObject {
   @Override
   protected void load(Node xml) {}
 
+  @Override
+  public void store(File outputFile) {
+    ConfigurationFiles.storeIfChanged(this, outputFile, false);
+  }
+
   @Override
   protected void store(Node xml) {
     for (File entry : entries) {
@@ -0,0 +1,129 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Computes content hashes of files, remembering them (for the most recently hashed files) for as
+ * long as the file's size and last modification time don't change.
+ */
+final class FileHasher {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final int MAX_SNAPSHOTS = 1024;
+
+  private final LruCache<File, Snapshot> snapshots = new LruCache<>(MAX_SNAPSHOTS);
+
+  String hash(File file) throws IOException {
+    file = file.getAbsoluteFile();
+    long length = file.length();
+    long lastModified = file.lastModified();
+    Snapshot snapshot = snapshots.get(file);
+    if (snapshot != null && snapshot.length == length && snapshot.lastModified == lastModified) {
+      return snapshot.hash;
+    }
+    String hash = computeHash(file);
+    snapshots.put(file, new Snapshot(length, lastModified, hash));
+    return hash;
+  }
+
+  /**
+   * Returns a hash of the given classpath, combining the content hash of each JAR with the path,
+   * size and last modification time of each file in directories.
+   */
+  String hashClasspath(Iterable<File> classpath) throws IOException {
+    MessageDigest digest = newDigest();
+    for (File file : classpath) {
+      if (file.isFile()) {
+        update(digest, "F" + hash(file));
+      } else if (file.isDirectory()) {
+        update(digest, "D" + file.getAbsolutePath());
+        hashDirectory(digest, file, "");
+      } else {
+        update(digest, "M");
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  private static void hashDirectory(MessageDigest digest, File dir, String relativePath) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    Arrays.sort(children);
+    for (File child : children) {
+      String childPath = relativePath + child.getName();
+      if (child.isDirectory()) {
+        hashDirectory(digest, child, childPath + '/');
+      } else {
+        update(digest, childPath + ':' + child.length() + ':' + child.lastModified());
+      }
+    }
+  }
+
+  private static void update(MessageDigest digest, String s) {
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Returns the absolute path, size and last modification time of the given file, which stand for
+   * its content without reading it.
+   */
+  static String stamp(File file) {
+    return file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+  }
+
+  /** Returns a hash of the given string, e.g. to use a {@link #stamp} as a file name. */
+  static String hash(String s) {
+    MessageDigest digest = newDigest();
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+    return toHex(digest.digest());
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static String computeHash(File file) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = new FileInputStream(file)) {
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+
+  private static class Snapshot {
+    final long length;
+    final long lastModified;
+    final String hash;
+
+    Snapshot(long length, long lastModified, String hash) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+  }
+}
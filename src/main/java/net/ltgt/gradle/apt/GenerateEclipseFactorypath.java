@@ -7,6 +7,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.tasks.Internal;
 import org.gradle.plugins.ide.api.XmlFileContentMerger;
@@ -19,12 +20,29 @@ public class GenerateEclipseFactorypath extends XmlGeneratorTask<Factorypath> {
 
   public GenerateEclipseFactorypath() {
     this.getXmlTransformer().setIndentation("\t");
+    // Like the Eclipse plugin tasks, which this task complements.
+    CompatibilityUtils.notCompatibleWithConfigurationCache(
+        this, "Resolves the factorypath configurations through the Eclipse model.");
+    CompatibilityUtils.files(
+        CompatibilityUtils.getInputs(this),
+        new Callable<Set<File>>() {
+          @Override
+          public Set<File> call() {
+            return getEntries();
+          }
+        });
   }
 
   @Override
   protected void configure(Factorypath factorypath) {
     EclipseFactorypath factorypathModel = getFactorypath();
     getBeforeMerged(factorypathModel.getFile()).execute(factorypath);
+    factorypath.setEntries(new ArrayList<>(getEntries()));
+    getWhenMerged(factorypathModel.getFile()).execute(factorypath);
+  }
+
+  private Set<File> getEntries() {
+    EclipseFactorypath factorypathModel = getFactorypath();
     Set<File> entries = new LinkedHashSet<>();
     for (Configuration configuration : factorypathModel.getPlusConfigurations()) {
       entries.addAll(configuration.getFiles());
@@ -32,8 +50,7 @@ public class GenerateEclipseFactorypath extends XmlGeneratorTask<Factorypath> {
     for (Configuration configuration : factorypathModel.getMinusConfigurations()) {
       entries.removeAll(configuration.getFiles());
     }
-    factorypath.setEntries(new ArrayList<>(entries));
-    getWhenMerged(factorypathModel.getFile()).execute(factorypath);
+    return entries;
   }
 
   @Internal
@@ -45,6 +62,15 @@ public class GenerateEclipseFactorypath extends XmlGeneratorTask<Factorypath> {
     this.factorypath = factorypath;
   }
 
+  /**
+   * Allows the task to be up-to-date, as its inputs are declared; changes to the {@code
+   * beforeMerged} and {@code whenMerged} hooks are only seen once an input or the file changes.
+   */
+  @Override
+  protected boolean getIncremental() {
+    return true;
+  }
+
   @Override
   protected Factorypath create() {
     return new Factorypath(getXmlTransformer());
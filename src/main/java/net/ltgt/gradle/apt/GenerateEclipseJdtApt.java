@@ -3,8 +3,11 @@ package net.ltgt.gradle.apt;
 import static net.ltgt.gradle.apt.CompatibilityUtils.getBeforeMerged;
 import static net.ltgt.gradle.apt.CompatibilityUtils.getWhenMerged;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskInputs;
 import org.gradle.plugins.ide.api.PropertiesFileContentMerger;
 import org.gradle.plugins.ide.api.PropertiesGeneratorTask;
 
@@ -14,6 +17,49 @@ public class GenerateEclipseJdtApt extends PropertiesGeneratorTask<JdtApt> {
           .newInstance(
               EclipseJdtApt.class, getProject(), new PropertiesFileContentMerger(getTransformer()));
 
+  public GenerateEclipseJdtApt() {
+    TaskInputs inputs = CompatibilityUtils.getInputs(this);
+    // Like the Eclipse plugin tasks, which this task complements.
+    CompatibilityUtils.notCompatibleWithConfigurationCache(
+        this, "Reads the Eclipse model and the compile task conventions.");
+    CompatibilityUtils.property(
+        inputs,
+        "jdtApt.aptEnabled",
+        new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            return getJdtApt().isAptEnabled();
+          }
+        });
+    CompatibilityUtils.property(
+        inputs,
+        "jdtApt.genSrcDir",
+        new Callable<String>() {
+          @Override
+          public String call() {
+            return getProject().relativePath(getJdtApt().getGenSrcDir());
+          }
+        });
+    CompatibilityUtils.property(
+        inputs,
+        "jdtApt.reconcileEnabled",
+        new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            return getJdtApt().isReconcileEnabled();
+          }
+        });
+    CompatibilityUtils.property(
+        inputs,
+        "jdtApt.processorOptions",
+        new Callable<Map<String, String>>() {
+          @Override
+          public Map<String, String> call() {
+            return getProcessorOptions();
+          }
+        });
+  }
+
   @Override
   protected void configure(JdtApt jdtApt) {
     EclipseJdtApt jdtAptModel = getJdtApt();
@@ -22,14 +68,28 @@ public class GenerateEclipseJdtApt extends PropertiesGeneratorTask<JdtApt> {
     jdtApt.setGenSrcDir(getProject().relativePath(jdtAptModel.getGenSrcDir()));
     jdtApt.setReconcileEnabled(jdtAptModel.isReconcileEnabled());
     jdtApt.getProcessorOptions().clear();
-    if (jdtAptModel.getProcessorOptions() != null) {
-      for (Map.Entry<String, ?> entry : jdtAptModel.getProcessorOptions().entrySet()) {
-        jdtApt
-            .getProcessorOptions()
-            .put(entry.getKey(), entry.getValue() == null ? null : entry.getValue().toString());
+    jdtApt.getProcessorOptions().putAll(getProcessorOptions());
+    getWhenMerged(jdtAptModel.getFile()).execute(jdtApt);
+  }
+
+  private Map<String, String> getProcessorOptions() {
+    Map<String, String> processorOptions = new LinkedHashMap<>();
+    if (getJdtApt().getProcessorOptions() != null) {
+      for (Map.Entry<String, ?> entry : getJdtApt().getProcessorOptions().entrySet()) {
+        processorOptions.put(
+            entry.getKey(), entry.getValue() == null ? null : entry.getValue().toString());
       }
     }
-    getWhenMerged(jdtAptModel.getFile()).execute(jdtApt);
+    return processorOptions;
+  }
+
+  /**
+   * Allows the task to be up-to-date, as its inputs are declared; changes to the {@code
+   * beforeMerged} and {@code whenMerged} hooks are only seen once an input or the file changes.
+   */
+  @Override
+  protected boolean getIncremental() {
+    return true;
   }
 
   @Override
@@ -0,0 +1,134 @@
+package net.ltgt.gradle.apt;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the size, last modification time and content hash of the files in a generated sources
+ * directory, so their content doesn't have to be read again as long as they don't change.
+ *
+ * <p>The index is persisted between builds, and kept up-to-date as files are moved into the
+ * directory. The directory is still walked on each synchronization to delete stale files, but only
+ * the attributes of the indexed files are read.
+ */
+final class GeneratedFilesIndex {
+  private static final class Entry {
+    final long size;
+    final long lastModified;
+    final String hash;
+
+    Entry(long size, long lastModified, String hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+  }
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  /** Reads the index from the given file, returning an empty index if it's absent or malformed. */
+  static GeneratedFilesIndex read(File file) {
+    GeneratedFilesIndex index = new GeneratedFilesIndex();
+    if (!file.isFile()) {
+      return index;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        String[] parts = line.split("\t");
+        if (parts.length != 4) {
+          return new GeneratedFilesIndex();
+        }
+        index.entries.put(
+            parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+      }
+    } catch (IOException | NumberFormatException e) {
+      return new GeneratedFilesIndex();
+    }
+    return index;
+  }
+
+  void write(File file) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create directory " + parent);
+    }
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        writer.write(entry.getKey());
+        writer.write('\t');
+        writer.write(Long.toString(entry.getValue().size));
+        writer.write('\t');
+        writer.write(Long.toString(entry.getValue().lastModified));
+        writer.write('\t');
+        writer.write(entry.getValue().hash);
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Returns the indexed hash of the file at the given relative path, or {@code null} if it's not
+   * indexed or has changed since it was.
+   */
+  @Nullable
+  String getHash(String relativePath, Path file) throws IOException {
+    Entry entry = entries.get(relativePath);
+    if (entry == null || !Files.isRegularFile(file)) {
+      return null;
+    }
+    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    if (attrs.size() != entry.size || attrs.lastModifiedTime().toMillis() != entry.lastModified) {
+      return null;
+    }
+    return entry.hash;
+  }
+
+  /** Indexes the file at the given relative path, whose content has the given hash. */
+  void put(String relativePath, Path file, String hash) throws IOException {
+    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    entries.put(relativePath, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), hash));
+  }
+
+  /** Removes the file at the given relative path from the index. */
+  void remove(String relativePath) {
+    entries.remove(relativePath);
+  }
+
+  /** Removes the files that aren't at any of the given relative paths from the index. */
+  void retainAll(Collection<String> relativePaths) {
+    entries.keySet().retainAll(relativePaths);
+  }
+
+  static String hash(Path file) throws IOException {
+    MessageDigest digest = FileHasher.newDigest();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = Files.newInputStream(file)) {
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return FileHasher.toHex(digest.digest());
+  }
+}
@@ -0,0 +1,184 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Normalizes known non-deterministic content in generated sources, so that they don't defeat the
+ * build cache, and reports which annotation processors generated non-reproducible sources.
+ *
+ * <p>Only content that doesn't end up in class files is normalized: {@code @Generated} annotations
+ * have source retention.
+ */
+class GeneratedSourcesNormalizer {
+  static final String UNKNOWN_PROCESSOR = "<unknown>";
+  static final String GENERATED_DATE = "@Generated date";
+  static final String ABSOLUTE_PATH = "absolute path";
+
+  private static final String STRING_LITERAL = "\"(?:[^\"\\\\]|\\\\.)*\"";
+  private static final Pattern GENERATED_ANNOTATION =
+      Pattern.compile(
+          "@(?:javax\\.annotation\\.(?:processing\\.)?)?Generated\\s*\\(((?:[^()\"]|"
+              + STRING_LITERAL
+              + ")*)\\)");
+  private static final Pattern DATE_ATTRIBUTE =
+      Pattern.compile("(\\s*,)?\\s*\\bdate\\s*=\\s*" + STRING_LITERAL + "(\\s*,)?");
+  private static final Pattern PROCESSOR_NAME =
+      Pattern.compile("(?:^\\s*|\\bvalue\\s*=\\s*)\\{?\\s*\"([^\"]*)\"");
+
+  private final Charset charset;
+  private final List<String> absolutePaths;
+  /** Files with non-reproducible content, by processor then by kind. */
+  private final Map<String, Map<String, Set<String>>> report = new TreeMap<>();
+
+  GeneratedSourcesNormalizer(Charset charset, List<String> absolutePaths) {
+    this.charset = charset;
+    this.absolutePaths = absolutePaths;
+  }
+
+  void normalize(File generatedSourcesDir) throws IOException {
+    normalize(generatedSourcesDir, "");
+  }
+
+  private void normalize(File dir, String relativePath) throws IOException {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      String childPath = relativePath + child.getName();
+      if (child.isDirectory()) {
+        normalize(child, childPath + '/');
+      } else if (child.getName().endsWith(".java")) {
+        normalizeFile(child, childPath);
+      }
+    }
+  }
+
+  private void normalizeFile(File file, String relativePath) throws IOException {
+    String content = new String(Files.readAllBytes(file.toPath()), charset);
+    String processor = UNKNOWN_PROCESSOR;
+    boolean hasDate = false;
+    StringBuffer normalized = new StringBuffer(content.length());
+    Matcher matcher = GENERATED_ANNOTATION.matcher(content);
+    while (matcher.find()) {
+      String attributes = matcher.group(1);
+      String processorName = getProcessorName(attributes);
+      if (processorName != null) {
+        processor = processorName;
+      }
+      String newAttributes = removeDate(attributes);
+      if (!newAttributes.equals(attributes)) {
+        hasDate = true;
+      }
+      matcher.appendReplacement(
+          normalized,
+          Matcher.quoteReplacement(
+              content.substring(matcher.start(), matcher.start(1))
+                  + newAttributes
+                  + content.substring(matcher.end(1), matcher.end())));
+    }
+    matcher.appendTail(normalized);
+
+    if (hasDate) {
+      addToReport(processor, GENERATED_DATE, relativePath);
+      Files.write(file.toPath(), normalized.toString().getBytes(charset));
+    }
+    for (String absolutePath : absolutePaths) {
+      if (content.contains(absolutePath)) {
+        // Can't safely be normalized, as it could change the generated code semantics.
+        addToReport(processor, ABSOLUTE_PATH, relativePath);
+        break;
+      }
+    }
+  }
+
+  @Nullable
+  static String getProcessorName(String attributes) {
+    Matcher matcher = PROCESSOR_NAME.matcher(attributes);
+    if (!matcher.find()) {
+      return null;
+    }
+    return matcher.group(1);
+  }
+
+  static String removeDate(String attributes) {
+    Matcher matcher = DATE_ATTRIBUTE.matcher(attributes);
+    if (!matcher.find()) {
+      return attributes;
+    }
+    // Keep a single comma if the date was between two other attributes
+    String separator = matcher.group(1) != null && matcher.group(2) != null ? "," : "";
+    return attributes.substring(0, matcher.start())
+        + separator
+        + attributes.substring(matcher.end());
+  }
+
+  private void addToReport(String processor, String kind, String relativePath) {
+    Map<String, Set<String>> byKind = report.get(processor);
+    if (byKind == null) {
+      byKind = new TreeMap<>();
+      report.put(processor, byKind);
+    }
+    Set<String> files = byKind.get(kind);
+    if (files == null) {
+      files = new TreeSet<>();
+      byKind.put(kind, files);
+    }
+    files.add(relativePath);
+  }
+
+  boolean hasNonReproducibleSources() {
+    return !report.isEmpty();
+  }
+
+  /** Returns a summary line for each processor that generated non-reproducible sources. */
+  List<String> getSummary() {
+    List<String> summary = new ArrayList<>();
+    for (Map.Entry<String, Map<String, Set<String>>> byProcessor : report.entrySet()) {
+      for (Map.Entry<String, Set<String>> byKind : byProcessor.getValue().entrySet()) {
+        summary.add(
+            byProcessor.getKey()
+                + ": "
+                + byKind.getKey()
+                + " in "
+                + byKind.getValue().size()
+                + " file(s)");
+      }
+    }
+    return summary;
+  }
+
+  void writeReport(File reportFile) throws IOException {
+    Files.createDirectories(reportFile.getParentFile().toPath());
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Map<String, Set<String>>> byProcessor : report.entrySet()) {
+        writer.write(byProcessor.getKey());
+        writer.write('\n');
+        for (Map.Entry<String, Set<String>> byKind : byProcessor.getValue().entrySet()) {
+          writer.write("  ");
+          writer.write(byKind.getKey());
+          writer.write('\n');
+          for (String file : byKind.getValue()) {
+            writer.write("    ");
+            writer.write(file);
+            writer.write('\n');
+          }
+        }
+      }
+    }
+  }
+}
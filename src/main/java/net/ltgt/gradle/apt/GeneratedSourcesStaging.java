@@ -0,0 +1,182 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Moves generated files from a staging directory into the actual generated sources directory, only
+ * replacing files whose content changed, and deleting those that haven't been generated again; so
+ * unchanged files keep their timestamps and IDEs or downstream tasks don't see them as modified.
+ *
+ * <p>Staged files are only hashed when a file of the same size exists in the generated sources
+ * directory, whose content hash is taken from, and recorded into, a {@link GeneratedFilesIndex},
+ * so it's only read when it's not been hashed yet or has been modified behind our back.
+ */
+final class GeneratedSourcesStaging {
+  private final GeneratedFilesIndex index;
+
+  private int updated;
+  private int unchanged;
+  private int deleted;
+
+  GeneratedSourcesStaging(GeneratedFilesIndex index) {
+    this.index = index;
+  }
+
+  /** Deletes the staging directory, so it only contains the files generated by the next run. */
+  static void clean(File stagingDir) throws IOException {
+    if (!stagingDir.exists()) {
+      return;
+    }
+    Files.walkFileTree(
+        stagingDir.toPath(),
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            Files.delete(file);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+              throws IOException {
+            if (exc != null) {
+              throw exc;
+            }
+            Files.delete(dir);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  /**
+   * Synchronizes the target directory with the staging directory, then deletes the staging
+   * directory.
+   */
+  void sync(File stagingDir, File targetDir) throws IOException {
+    final Path source = stagingDir.toPath();
+    final Path target = targetDir.toPath();
+    final Set<Path> generated = new HashSet<>();
+    final Set<String> generatedFiles = new HashSet<>();
+    Files.createDirectories(target);
+    if (Files.isDirectory(source)) {
+      Files.walkFileTree(
+          source,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+              Path relativePath = source.relativize(dir);
+              generated.add(relativePath);
+              Path targetDir = target.resolve(relativePath);
+              if (!Files.isDirectory(targetDir)) {
+                Files.deleteIfExists(targetDir);
+                Files.createDirectories(targetDir);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              Path relativePath = source.relativize(file);
+              generated.add(relativePath);
+              String path = toIndexPath(relativePath);
+              generatedFiles.add(path);
+              Path targetFile = target.resolve(relativePath);
+              // Files whose size changed are moved without being read; they'll only be hashed
+              // if they're generated again with the same size.
+              String hash = null;
+              if (Files.isRegularFile(targetFile) && Files.size(targetFile) == attrs.size()) {
+                hash = GeneratedFilesIndex.hash(file);
+              }
+              if (hash != null && isSameContent(path, hash, targetFile)) {
+                unchanged++;
+              } else {
+                if (Files.isDirectory(targetFile)) {
+                  clean(targetFile.toFile());
+                }
+                Files.move(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+                updated++;
+              }
+              if (hash != null) {
+                index.put(path, targetFile, hash);
+              } else {
+                index.remove(path);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+    Files.walkFileTree(
+        target,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            if (dir.equals(target) || generated.contains(target.relativize(dir))) {
+              return FileVisitResult.CONTINUE;
+            }
+            deleted += countFiles(dir);
+            clean(dir.toFile());
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (!generated.contains(target.relativize(file))) {
+              Files.delete(file);
+              deleted++;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    index.retainAll(generatedFiles);
+    clean(stagingDir);
+  }
+
+  int getUpdated() {
+    return updated;
+  }
+
+  int getUnchanged() {
+    return unchanged;
+  }
+
+  int getDeleted() {
+    return deleted;
+  }
+
+  private boolean isSameContent(String path, String hash, Path targetFile) throws IOException {
+    String targetHash = index.getHash(path, targetFile);
+    if (targetHash == null) {
+      targetHash = GeneratedFilesIndex.hash(targetFile);
+    }
+    return hash.equals(targetHash);
+  }
+
+  private static String toIndexPath(Path relativePath) {
+    return relativePath.toString().replace(File.separatorChar, '/');
+  }
+
+  private static int countFiles(Path dir) throws IOException {
+    int count = 0;
+    try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+      for (Path child : children) {
+        count += Files.isDirectory(child) ? countFiles(child) : 1;
+      }
+    }
+    return count;
+  }
+}
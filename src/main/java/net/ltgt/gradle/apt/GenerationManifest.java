@@ -0,0 +1,108 @@
+package net.ltgt.gradle.apt;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Records the files generated by annotation processors, along with the top-level types they
+ * originate from.
+ *
+ * <p>This class is used both by the plugin and by the {@link DelegatingProcessor} running inside
+ * javac, so it must only depend on the JDK.
+ */
+final class GenerationManifest {
+  static final String SOURCE_OUTPUT = "SOURCE_OUTPUT";
+  static final String CLASS_OUTPUT = "CLASS_OUTPUT";
+
+  static final class Entry {
+    final String location;
+    final String path;
+    final Set<String> originatingTypes;
+
+    Entry(String location, String path, Set<String> originatingTypes) {
+      this.location = location;
+      this.path = path;
+      this.originatingTypes = Collections.unmodifiableSet(originatingTypes);
+    }
+
+    String getKey() {
+      return location + ':' + path;
+    }
+  }
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  static GenerationManifest read(File file) throws IOException {
+    GenerationManifest manifest = new GenerationManifest();
+    if (!file.isFile()) {
+      return manifest;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        String[] parts = line.split("\t");
+        if (parts.length < 2) {
+          throw new IOException("Malformed generation manifest: " + file);
+        }
+        manifest.add(
+            new Entry(
+                parts[0],
+                parts[1],
+                new LinkedHashSet<>(Arrays.asList(parts).subList(2, parts.length))));
+      }
+    }
+    return manifest;
+  }
+
+  void write(File file) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create directory " + parent);
+    }
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      for (Entry entry : entries.values()) {
+        writer.write(entry.location);
+        writer.write('\t');
+        writer.write(entry.path);
+        for (String originatingType : entry.originatingTypes) {
+          writer.write('\t');
+          writer.write(originatingType);
+        }
+        writer.write('\n');
+      }
+    }
+  }
+
+  void add(Entry entry) {
+    entries.put(entry.getKey(), entry);
+  }
+
+  @Nullable
+  Entry get(String key) {
+    return entries.get(key);
+  }
+
+  Collection<Entry> getEntries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+}
@@ -1,5 +1,6 @@
 package net.ltgt.gradle.apt;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -25,6 +26,11 @@ public class JdtApt extends PropertiesPersistableConfigurationObject {
   @Override
   protected void load(Properties properties) {}
 
+  @Override
+  public void store(File outputFile) {
+    ConfigurationFiles.storeIfChanged(this, outputFile, true);
+  }
+
   @Override
   protected void store(Properties properties) {
     // This property is actually only for Eclipse versions prior to 3.3,
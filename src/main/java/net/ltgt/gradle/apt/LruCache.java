@@ -0,0 +1,40 @@
+package net.ltgt.gradle.apt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/** A thread-safe map keeping at most a given number of entries, the most recently used ones. */
+final class LruCache<K, V> {
+  private final Map<K, V> entries;
+
+  LruCache(final int maxSize) {
+    // Access-ordered: the eldest entry is the least recently used one.
+    entries =
+        new LinkedHashMap<K, V>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  @Nullable
+  synchronized V get(K key) {
+    return entries.get(key);
+  }
+
+  synchronized void put(K key, V value) {
+    entries.put(key, value);
+  }
+
+  /** Same as {@link java.util.concurrent.ConcurrentMap#putIfAbsent}. */
+  @Nullable
+  synchronized V putIfAbsent(K key, V value) {
+    V previous = entries.get(key);
+    if (previous == null) {
+      entries.put(key, value);
+    }
+    return previous;
+  }
+}
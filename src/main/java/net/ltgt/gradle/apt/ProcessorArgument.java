@@ -0,0 +1,75 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+import org.gradle.api.file.FileCollection;
+
+/**
+ * An annotation processor option whose value is only known when the task executes.
+ *
+ * @see AptPlugin.AptOptions#processorArg(String, Object)
+ */
+final class ProcessorArgument {
+  enum Kind {
+    /** A value tracked as an input property. */
+    VALUE,
+    /** A file whose content is tracked as an input, independently of its path. */
+    INPUT_FILE,
+    /** A directory whose content and structure are tracked as an input. */
+    INPUT_DIRECTORY,
+    /** A directory tracked as an output. */
+    OUTPUT_DIRECTORY
+  }
+
+  private final String name;
+  private final Kind kind;
+  // A FileCollection for all kinds but VALUE.
+  @Nullable private final Object value;
+
+  ProcessorArgument(String name, Kind kind, @Nullable Object value) {
+    this.name = name;
+    this.kind = kind;
+    this.value = value;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  FileCollection getFiles() {
+    return (FileCollection) value;
+  }
+
+  /** Returns the value of the option, as passed to the annotation processors. */
+  @Nullable
+  String getValue(AptPlugin.AptOptions aptOptions) {
+    if (kind != Kind.VALUE) {
+      return getFile().getPath();
+    }
+    Object resolved = aptOptions.resolve(value);
+    return resolved == null ? null : resolved.toString();
+  }
+
+  File getFile() {
+    return getFiles().getSingleFile();
+  }
+
+  @Nullable
+  static Object resolveCallable(@Nullable Object value) {
+    if (value instanceof Callable) {
+      try {
+        return ((Callable<?>) value).call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return value;
+  }
+}
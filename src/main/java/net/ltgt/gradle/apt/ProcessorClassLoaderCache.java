@@ -0,0 +1,192 @@
+package net.ltgt.gradle.apt;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * A cache of annotation processor class loaders, shared by all compilations running in the same
+ * JVM (e.g. the Gradle daemon).
+ *
+ * <p>This class is loaded by javac in a new class loader for each compilation, along with the
+ * {@link DelegatingProcessor}, so the cache itself has to be stored somewhere all those class
+ * loaders can see: it's held by an MBean registered in the platform MBean server. Both the MBean
+ * and the cache only use JDK types, so they don't retain the class loader of the compilation that
+ * registered them. Class loaders are cached for each parent class loader, are softly referenced,
+ * and the least recently used ones are evicted when the cache is full, or when they haven't been
+ * used for some time; they're then closed once no compilation uses them anymore.
+ *
+ * <p>This class must only depend on the JDK.
+ */
+final class ProcessorClassLoaderCache {
+  // Versioned, as previous versions of this class registered an MBean with another interface.
+  private static final String OBJECT_NAME = "net.ltgt.apt:type=ProcessorClassLoaderCache,v=2";
+  private static final String CACHES = "caches";
+  private static final String IN_USE = "inUse";
+  static final String MAX_SIZE_PROPERTY = "net.ltgt.apt.processorClassLoaderCacheSize";
+  static final int DEFAULT_MAX_SIZE = 8;
+
+  // Entries are arrays of JDK types, so they can be read by any copy of this class.
+  private static final int CLASS_LOADER = 0;
+  private static final int LAST_USED = 1;
+  private static final int USERS = 2;
+  private static final int EVICTED = 3;
+
+  private ProcessorClassLoaderCache() {
+    // non-instantiable
+  }
+
+  /**
+   * Returns a cached class loader for the given key, or creates a new one for the given URLs. It
+   * has to be {@linkplain #release released} once the compilation is done with it.
+   *
+   * @param key identifies the content of the URLs; class loaders are reused across compilations
+   *     whose processor path has the same content
+   * @param maxSize the maximum number of class loaders to keep, or a negative value to use the
+   *     {@value #MAX_SIZE_PROPERTY} system property, defaulting to {@value #DEFAULT_MAX_SIZE}
+   * @param idleTimeoutMillis how long class loaders are kept when unused, or zero to keep them
+   *     until evicted by newer ones or garbage collected
+   */
+  static ClassLoader getClassLoader(
+      String key, URL[] urls, ClassLoader parent, int maxSize, long idleTimeoutMillis) {
+    Map<ClassLoader, Map<String, Object[]>> caches = getState(CACHES);
+    Map<ClassLoader, Object[]> inUse = getState(IN_USE);
+    synchronized (caches) {
+      Map<String, Object[]> cache = caches.get(parent);
+      if (cache == null) {
+        // Access-ordered: iteration starts with the least recently used entry.
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+        caches.put(parent, cache);
+      }
+      long now = System.currentTimeMillis();
+      Object[] entry = cache.get(key);
+      URLClassLoader classLoader = entry == null ? null : getClassLoader(entry);
+      if (classLoader == null) {
+        classLoader = new URLClassLoader(urls, parent);
+        entry = new Object[] {new SoftReference<>(classLoader), now, 0, false};
+        cache.put(key, entry);
+      }
+      entry[LAST_USED] = now;
+      entry[USERS] = (Integer) entry[USERS] + 1;
+      inUse.put(classLoader, entry);
+      evict(
+          cache,
+          maxSize < 0 ? Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE) : maxSize,
+          idleTimeoutMillis > 0 ? now - idleTimeoutMillis : Long.MIN_VALUE);
+      return classLoader;
+    }
+  }
+
+  /**
+   * Releases a class loader returned by {@link #getClassLoader}, closing it if it's been evicted
+   * and isn't used by other compilations.
+   */
+  static void release(ClassLoader classLoader) {
+    Map<ClassLoader, Map<String, Object[]>> caches = getState(CACHES);
+    Map<ClassLoader, Object[]> inUse = getState(IN_USE);
+    synchronized (caches) {
+      Object[] entry = inUse.get(classLoader);
+      if (entry == null) {
+        return;
+      }
+      int users = (Integer) entry[USERS] - 1;
+      entry[USERS] = users;
+      if (users == 0) {
+        inUse.remove(classLoader);
+        if ((Boolean) entry[EVICTED]) {
+          close(getClassLoader(entry));
+        }
+      }
+    }
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private static URLClassLoader getClassLoader(Object[] entry) {
+    return ((SoftReference<URLClassLoader>) entry[CLASS_LOADER]).get();
+  }
+
+  /**
+   * Returns the caches, by parent class loader, or the entries of the class loaders in use. Both
+   * maps are weak-keyed and, as class loaders don't override {@code equals}, compare them by
+   * identity.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T getState(String key) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      synchronized (ProcessorClassLoaderCache.class) {
+        if (!server.isRegistered(name)) {
+          Map<String, Object> state = new HashMap<>();
+          state.put(CACHES, new WeakHashMap<ClassLoader, Map<String, Object[]>>());
+          state.put(IN_USE, new WeakHashMap<ClassLoader, Object[]>());
+          try {
+            // Exposes the map's methods as operations; the MBean class, its interface, and the
+            // map are all JDK types.
+            server.registerMBean(new StandardMBean(state, Map.class), name);
+          } catch (InstanceAlreadyExistsException e) {
+            // registered concurrently, by another copy of this class
+          }
+        }
+      }
+      return (T)
+          server.invoke(name, "get", new Object[] {key}, new String[] {Object.class.getName()});
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot get annotation processor class loader cache", e);
+    }
+  }
+
+  private static void evict(Map<String, Object[]> cache, int maxSize, long unusedSince) {
+    Iterator<Object[]> iterator = cache.values().iterator();
+    while (iterator.hasNext()) {
+      Object[] entry = iterator.next();
+      if (getClassLoader(entry) == null || (Long) entry[LAST_USED] < unusedSince) {
+        iterator.remove();
+        evicted(entry);
+      }
+    }
+    iterator = cache.values().iterator();
+    for (int size = cache.size(); size > maxSize && iterator.hasNext(); size--) {
+      Object[] entry = iterator.next();
+      iterator.remove();
+      evicted(entry);
+    }
+  }
+
+  /**
+   * Closes the class loader of an evicted entry, releasing its JAR files (which would otherwise
+   * stay open, and locked on Windows, until it's garbage collected); unless it's still in use by
+   * a concurrent compilation, in which case it's closed once released.
+   */
+  private static void evicted(Object[] entry) {
+    entry[EVICTED] = true;
+    if ((Integer) entry[USERS] == 0) {
+      close(getClassLoader(entry));
+    }
+  }
+
+  private static void close(@Nullable URLClassLoader classLoader) {
+    if (classLoader == null) {
+      return;
+    }
+    try {
+      classLoader.close();
+    } catch (IOException e) {
+      // best effort, the JAR files will be closed once the class loader is garbage collected
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.invocation.Gradle;
+
+/**
+ * Remembers, for the duration of a build, what has been computed about each distinct annotation
+ * processor path: its resolved files, fingerprint, content hash, and whether it declares any
+ * annotation processors.
+ *
+ * <p>Source sets and compile tasks commonly share the same processor path (e.g. the main and test
+ * source sets, or a compile task and its separate annotation processing task), so this makes sure
+ * each of them is only resolved and fingerprinted once per build, however many tasks use it.
+ *
+ * <p>Processor paths are keyed by their resolved files. Their content is assumed not to change
+ * during the build once a task using them executes, as such a task depends on whatever produces
+ * them; a new build starts with a new cache.
+ *
+ * <p>The cache doesn't reference the build model (only files and strings), so that it doesn't
+ * prevent the build it's keyed by from being garbage collected once finished.
+ */
+final class ProcessorPathCache {
+  private static final Map<Gradle, ProcessorPathCache> INSTANCES = new WeakHashMap<>();
+  // Content hashes of JARs are kept across builds, as long as the files don't change.
+  private static final FileHasher FILE_HASHER = new FileHasher();
+
+  static ProcessorPathCache forBuild(Gradle gradle) {
+    synchronized (INSTANCES) {
+      ProcessorPathCache cache = INSTANCES.get(gradle);
+      if (cache == null) {
+        cache = new ProcessorPathCache(gradle.getGradleUserHomeDir());
+        INSTANCES.put(gradle, cache);
+      }
+      return cache;
+    }
+  }
+
+  private final File gradleUserHomeDir;
+  // Weakly keyed: configurations lead back to the build, which keys this cache in INSTANCES.
+  private final Map<FileCollection, List<File>> filesByCollection =
+      Collections.synchronizedMap(new WeakHashMap<FileCollection, List<File>>());
+  private final ConcurrentMap<List<File>, Entry> entries = new ConcurrentHashMap<>();
+
+  ProcessorPathCache(File gradleUserHomeDir) {
+    this.gradleUserHomeDir = gradleUserHomeDir;
+  }
+
+  /**
+   * Returns the files of the given processor path.
+   *
+   * <p>Only configurations are remembered, as their content cannot change once resolved; other
+   * file collections are evaluated every time.
+   */
+  List<File> getFiles(FileCollection processorPath) {
+    List<File> files = filesByCollection.get(processorPath);
+    if (files == null) {
+      files = new ArrayList<>(processorPath.getFiles());
+      if (processorPath instanceof Configuration) {
+        filesByCollection.put(processorPath, files);
+      }
+    }
+    return files;
+  }
+
+  /** Returns a fingerprint of the given processor path, only depending on its content. */
+  String fingerprint(FileCollection processorPath) {
+    Entry entry = getEntry(getFiles(processorPath));
+    synchronized (entry) {
+      if (entry.fingerprint == null) {
+        entry.fingerprint =
+            ProcessorPathFingerprinter.forGradleUserHome(gradleUserHomeDir)
+                .fingerprint(entry.files);
+      }
+      return entry.fingerprint;
+    }
+  }
+
+  /** Returns a hash of the given processor path, suitable as a class loader cache key. */
+  String hash(Iterable<File> processorPath) {
+    Entry entry = getEntry(processorPath);
+    synchronized (entry) {
+      if (entry.hash == null) {
+        try {
+          entry.hash = FILE_HASHER.hashClasspath(entry.files);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return entry.hash;
+    }
+  }
+
+  /** Returns whether any of the entries of the given processor path declares a processor. */
+  boolean hasProcessors(FileCollection processorPath) {
+    Entry entry = getEntry(getFiles(processorPath));
+    synchronized (entry) {
+      if (entry.hasProcessors == null) {
+        entry.hasProcessors =
+            AnnotationProcessorDetector.forGradleUserHome(gradleUserHomeDir)
+                .hasProcessors(entry.files);
+      }
+      return entry.hasProcessors;
+    }
+  }
+
+  private Entry getEntry(Iterable<File> processorPath) {
+    List<File> files = new ArrayList<>();
+    for (File file : processorPath) {
+      files.add(file);
+    }
+    Entry entry = entries.get(files);
+    if (entry == null) {
+      entry = new Entry(files);
+      Entry previous = entries.putIfAbsent(files, entry);
+      if (previous != null) {
+        entry = previous;
+      }
+    }
+    return entry;
+  }
+
+  private static class Entry {
+    final List<File> files;
+    @Nullable String fingerprint;
+    @Nullable String hash;
+    @Nullable Boolean hasProcessors;
+
+    Entry(List<File> files) {
+      this.files = files;
+    }
+  }
+}
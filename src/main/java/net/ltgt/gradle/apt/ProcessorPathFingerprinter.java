@@ -0,0 +1,203 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Computes fingerprints of annotation processor paths that only depend on the content of their
+ * entries, ignoring ZIP timestamps, entry order and the JAR manifest; so that rebuilt but otherwise
+ * identical JARs have the same fingerprint.
+ *
+ * <p>Fingerprints of JARs are cached by path, size and last modification time, both in memory (for
+ * the most recently used JARs) and in the Gradle user home, so each JAR is only unzipped once as
+ * long as it doesn't change.
+ */
+final class ProcessorPathFingerprinter {
+  private static final Logger LOGGER = Logging.getLogger(ProcessorPathFingerprinter.class);
+
+  private static final String CACHE_PATH = "caches/net.ltgt.apt/processor-path-fingerprints-2";
+  private static final String MANIFEST = "META-INF/MANIFEST.MF";
+  private static final int MAX_CACHED_JARS = 1024;
+
+  // There's generally a single Gradle user home per daemon.
+  private static final LruCache<File, ProcessorPathFingerprinter> INSTANCES = new LruCache<>(4);
+
+  static ProcessorPathFingerprinter forGradleUserHome(File gradleUserHomeDir) {
+    File cacheDir = new File(gradleUserHomeDir, CACHE_PATH);
+    ProcessorPathFingerprinter fingerprinter = INSTANCES.get(cacheDir);
+    if (fingerprinter == null) {
+      fingerprinter = new ProcessorPathFingerprinter(cacheDir);
+      ProcessorPathFingerprinter previous = INSTANCES.putIfAbsent(cacheDir, fingerprinter);
+      if (previous != null) {
+        fingerprinter = previous;
+      }
+    }
+    return fingerprinter;
+  }
+
+  private final File cacheDir;
+  private final LruCache<String, String> fingerprintsByStamp = new LruCache<>(MAX_CACHED_JARS);
+
+  ProcessorPathFingerprinter(File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /** Returns the fingerprint of the given processor path; the order of the files matters. */
+  String fingerprint(Iterable<File> files) {
+    MessageDigest digest = FileHasher.newDigest();
+    try {
+      for (File file : files) {
+        if (file.isFile()) {
+          update(digest, "F" + fingerprintJar(file));
+        } else if (file.isDirectory()) {
+          update(digest, "D");
+          fingerprintDirectory(digest, file, "");
+        } else {
+          update(digest, "M");
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return FileHasher.toHex(digest.digest());
+  }
+
+  String fingerprintJar(File file) throws IOException {
+    String stamp = FileHasher.stamp(file);
+    String fingerprint = fingerprintsByStamp.get(stamp);
+    if (fingerprint == null) {
+      String hash = FileHasher.hash(stamp);
+      fingerprint = readCacheEntry(hash);
+      if (fingerprint == null) {
+        fingerprint = computeJarFingerprint(file);
+        writeCacheEntry(hash, fingerprint);
+      }
+      fingerprintsByStamp.put(stamp, fingerprint);
+    }
+    return fingerprint;
+  }
+
+  private static String computeJarFingerprint(File file) throws IOException {
+    MessageDigest digest = FileHasher.newDigest();
+    try (ZipFile zipFile = new ZipFile(file)) {
+      List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+      Collections.sort(
+          entries,
+          new Comparator<ZipEntry>() {
+            @Override
+            public int compare(ZipEntry o1, ZipEntry o2) {
+              return o1.getName().compareTo(o2.getName());
+            }
+          });
+      for (ZipEntry entry : entries) {
+        if (entry.isDirectory() || entry.getName().equals(MANIFEST)) {
+          continue;
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          update(digest, entry.getName(), in);
+        }
+      }
+    }
+    return FileHasher.toHex(digest.digest());
+  }
+
+  private static void fingerprintDirectory(MessageDigest digest, File dir, String relativePath)
+      throws IOException {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    Arrays.sort(children);
+    for (File child : children) {
+      String childPath = relativePath + child.getName();
+      if (child.isDirectory()) {
+        fingerprintDirectory(digest, child, childPath + '/');
+      } else if (!childPath.equals(MANIFEST)) {
+        try (InputStream in = new FileInputStream(child)) {
+          update(digest, childPath, in);
+        }
+      }
+    }
+  }
+
+  private static void update(MessageDigest digest, String s) {
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static void update(MessageDigest digest, String name, InputStream in)
+      throws IOException {
+    update(digest, name);
+    MessageDigest contentDigest = FileHasher.newDigest();
+    byte[] buffer = new byte[8192];
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      contentDigest.update(buffer, 0, read);
+    }
+    digest.update(contentDigest.digest());
+  }
+
+  private File getCacheEntry(String hash) {
+    return new File(cacheDir, hash);
+  }
+
+  @Nullable
+  private String readCacheEntry(String hash) {
+    File cacheEntry = getCacheEntry(hash);
+    if (!cacheEntry.isFile()) {
+      return null;
+    }
+    try {
+      String fingerprint =
+          new String(Files.readAllBytes(cacheEntry.toPath()), StandardCharsets.UTF_8).trim();
+      return fingerprint.isEmpty() ? null : fingerprint;
+    } catch (IOException e) {
+      LOGGER.debug("Cannot read processor path fingerprint cache entry {}", cacheEntry, e);
+      return null;
+    }
+  }
+
+  private void writeCacheEntry(String hash, String fingerprint) {
+    // Write to a temporary file then move it in place, so concurrent builds never see partial
+    // entries.
+    try {
+      if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+        throw new IOException("Cannot create directory " + cacheDir);
+      }
+      File tmp = File.createTempFile(hash, ".tmp", cacheDir);
+      try {
+        try (OutputStream out = new FileOutputStream(tmp)) {
+          out.write(fingerprint.getBytes(StandardCharsets.UTF_8));
+        }
+        File cacheEntry = getCacheEntry(hash);
+        try {
+          Files.move(tmp.toPath(), cacheEntry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp.toPath(), cacheEntry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tmp.toPath());
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Cannot write processor path fingerprint cache entry for {}", hash, e);
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package net.ltgt.gradle.apt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how much time an annotation processor spends in each round, and how many elements it's
+ * been given and files it generated.
+ *
+ * <p>When tracking allocations, also records how many bytes the processor allocated (on the
+ * compiler thread), and how many garbage collections happened (in the whole JVM) during each
+ * round.
+ *
+ * <p>This class is used by the {@link DelegatingProcessor}, so it must only depend on the JDK.
+ */
+final class ProcessorTimings {
+  private final String processorName;
+  private final boolean trackingAllocations;
+  private long initNanos;
+  private Usage initUsage = Usage.NONE;
+  private final List<Round> rounds = new ArrayList<>();
+
+  ProcessorTimings(String processorName, boolean trackingAllocations) {
+    this.processorName = processorName;
+    this.trackingAllocations = trackingAllocations;
+  }
+
+  String getProcessorName() {
+    return processorName;
+  }
+
+  /** Takes a snapshot to measure the time spent (and resources used) from. */
+  Snapshot snapshot() {
+    return trackingAllocations ? Snapshot.withUsage() : Snapshot.withoutUsage();
+  }
+
+  void setInit(Snapshot start) {
+    Snapshot end = snapshot();
+    initNanos = end.nanos - start.nanos;
+    initUsage = Usage.between(start, end);
+  }
+
+  void addRound(int round, Snapshot start, int elements, int generatedFiles) {
+    Snapshot end = snapshot();
+    Usage usage = Usage.between(start, end);
+    rounds.add(new Round(round, end.nanos - start.nanos, usage, elements, generatedFiles));
+  }
+
+  /** The bytes allocated while initializing the processor and in all rounds, or -1 if unknown. */
+  long getAllocatedBytes() {
+    long allocatedBytes = initUsage.allocatedBytes;
+    for (Round round : rounds) {
+      if (allocatedBytes < 0 || round.usage.allocatedBytes < 0) {
+        return -1;
+      }
+      allocatedBytes += round.usage.allocatedBytes;
+    }
+    return allocatedBytes;
+  }
+
+  static void writeReport(File reportFile, List<ProcessorTimings> timings) throws IOException {
+    Files.createDirectories(reportFile.getAbsoluteFile().getParentFile().toPath());
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("{\n  \"processors\": [");
+      for (int i = 0; i < timings.size(); i++) {
+        writer.write(i == 0 ? "\n" : ",\n");
+        timings.get(i).write(writer);
+      }
+      writer.write(timings.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+  }
+
+  private void write(Writer writer) throws IOException {
+    long processNanos = 0;
+    long elements = 0;
+    long generatedFiles = 0;
+    long gcCount = initUsage.gcCount;
+    long gcMillis = initUsage.gcMillis;
+    for (Round round : rounds) {
+      processNanos += round.processNanos;
+      elements += round.elements;
+      generatedFiles += round.generatedFiles;
+      gcCount += round.usage.gcCount;
+      gcMillis += round.usage.gcMillis;
+    }
+    writer.write("    {\n");
+    writer.write("      \"name\": " + quote(processorName) + ",\n");
+    writer.write("      \"initNanos\": " + initNanos + ",\n");
+    writer.write("      \"processNanos\": " + processNanos + ",\n");
+    writer.write("      \"totalNanos\": " + (initNanos + processNanos) + ",\n");
+    writer.write("      \"elements\": " + elements + ",\n");
+    writer.write("      \"generatedFiles\": " + generatedFiles + ",\n");
+    if (trackingAllocations) {
+      writer.write("      \"initAllocatedBytes\": " + initUsage.allocatedBytes + ",\n");
+      writer.write("      \"allocatedBytes\": " + getAllocatedBytes() + ",\n");
+      writer.write("      \"gcCount\": " + gcCount + ",\n");
+      writer.write("      \"gcMillis\": " + gcMillis + ",\n");
+    }
+    writer.write("      \"rounds\": [");
+    for (int i = 0; i < rounds.size(); i++) {
+      Round round = rounds.get(i);
+      writer.write(i == 0 ? "\n" : ",\n");
+      writer.write(
+          "        { \"round\": "
+              + round.round
+              + ", \"processNanos\": "
+              + round.processNanos
+              + ", \"elements\": "
+              + round.elements
+              + ", \"generatedFiles\": "
+              + round.generatedFiles);
+      if (trackingAllocations) {
+        writer.write(
+            ", \"allocatedBytes\": "
+                + round.usage.allocatedBytes
+                + ", \"gcCount\": "
+                + round.usage.gcCount
+                + ", \"gcMillis\": "
+                + round.usage.gcMillis);
+      }
+      writer.write(" }");
+    }
+    writer.write(rounds.isEmpty() ? "]\n" : "\n      ]\n");
+    writer.write("    }");
+  }
+
+  static String quote(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  static final class Snapshot {
+    // Looked up once, so taking snapshots allocates as little as possible.
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> GC_MX_BEANS =
+        ManagementFactory.getGarbageCollectorMXBeans();
+
+    final long nanos;
+    final long allocatedBytes;
+    final long gcCount;
+    final long gcMillis;
+
+    private Snapshot(long nanos, long allocatedBytes, long gcCount, long gcMillis) {
+      this.nanos = nanos;
+      this.allocatedBytes = allocatedBytes;
+      this.gcCount = gcCount;
+      this.gcMillis = gcMillis;
+    }
+
+    static Snapshot withoutUsage() {
+      return new Snapshot(System.nanoTime(), -1, -1, -1);
+    }
+
+    static Snapshot withUsage() {
+      long gcCount = 0;
+      long gcMillis = 0;
+      for (GarbageCollectorMXBean gc : GC_MX_BEANS) {
+        // -1 if undefined for this collector
+        gcCount += Math.max(0, gc.getCollectionCount());
+        gcMillis += Math.max(0, gc.getCollectionTime());
+      }
+      return new Snapshot(System.nanoTime(), currentThreadAllocatedBytes(), gcCount, gcMillis);
+    }
+
+    private static long currentThreadAllocatedBytes() {
+      if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+        return -1;
+      }
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+        return -1;
+      }
+      return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+
+  private static class Usage {
+    static final Usage NONE = new Usage(-1, 0, 0);
+
+    final long allocatedBytes;
+    final long gcCount;
+    final long gcMillis;
+
+    Usage(long allocatedBytes, long gcCount, long gcMillis) {
+      this.allocatedBytes = allocatedBytes;
+      this.gcCount = gcCount;
+      this.gcMillis = gcMillis;
+    }
+
+    static Usage between(Snapshot start, Snapshot end) {
+      return new Usage(
+          start.allocatedBytes < 0 || end.allocatedBytes < 0
+              ? -1
+              : end.allocatedBytes - start.allocatedBytes,
+          Math.max(0, end.gcCount - start.gcCount),
+          Math.max(0, end.gcMillis - start.gcMillis));
+    }
+  }
+
+  private static class Round {
+    final int round;
+    final long processNanos;
+    final Usage usage;
+    final int elements;
+    final int generatedFiles;
+
+    Round(int round, long processNanos, Usage usage, int elements, int generatedFiles) {
+      this.round = round;
+      this.processNanos = processNanos;
+      this.usage = usage;
+      this.elements = elements;
+      this.generatedFiles = generatedFiles;
+    }
+  }
+}
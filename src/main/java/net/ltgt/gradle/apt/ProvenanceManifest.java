@@ -0,0 +1,198 @@
+package net.ltgt.gradle.apt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.tools.FileObject;
+
+/**
+ * Records which annotation processor generated each source, class and resource file, from which
+ * top-level types, and how many bytes were written.
+ *
+ * <p>The manifest is written in a compact binary format, meant to be read by other tools:
+ *
+ * <ul>
+ *   <li>the {@link #MAGIC} and {@link #VERSION} ints;
+ *   <li>a string table: its size as an int, then each string as per {@link
+ *       DataOutputStream#writeUTF(String)};
+ *   <li>the number of entries as an int, then for each entry: its {@link Kind} as a byte, the
+ *       string table indexes of its processor, location and path as ints, its size in bytes as a
+ *       long ({@code -1} if unknown), then the number of originating types as an int followed by
+ *       their string table indexes as ints.
+ * </ul>
+ *
+ * <p>This class is used by the {@link DelegatingProcessor}, so it must only depend on the JDK.
+ */
+final class ProvenanceManifest {
+  static final int MAGIC = 0x41505450; // "APTP"
+  static final int VERSION = 1;
+
+  enum Kind {
+    SOURCE,
+    CLASS,
+    RESOURCE
+  }
+
+  static final class Entry {
+    final Kind kind;
+    final String processor;
+    final String location;
+    final String path;
+    final Set<String> originatingTypes;
+    // The file is only measured when writing the manifest, once the processor has written it.
+    @Nullable private final FileObject file;
+    private long size;
+
+    Entry(
+        Kind kind,
+        String processor,
+        String location,
+        String path,
+        Set<String> originatingTypes,
+        long size) {
+      this(kind, processor, location, path, originatingTypes, null, size);
+    }
+
+    private Entry(
+        Kind kind,
+        String processor,
+        String location,
+        String path,
+        Set<String> originatingTypes,
+        @Nullable FileObject file,
+        long size) {
+      this.kind = kind;
+      this.processor = processor;
+      this.location = location;
+      this.path = path;
+      this.originatingTypes = Collections.unmodifiableSet(originatingTypes);
+      this.file = file;
+      this.size = size;
+    }
+
+    /** The number of bytes written to the file, or {@code -1} if unknown. */
+    long getSize() {
+      if (file != null && size < 0) {
+        size = sizeOf(file);
+      }
+      return size;
+    }
+
+    private static long sizeOf(FileObject file) {
+      URI uri = file.toUri();
+      if (!"file".equals(uri.getScheme())) {
+        return -1;
+      }
+      File f = new File(uri);
+      return f.isFile() ? f.length() : -1;
+    }
+  }
+
+  private final List<Entry> entries = new ArrayList<>();
+
+  /** Records a file generated by the given processor, to be measured when writing the manifest. */
+  void add(
+      Kind kind,
+      String processor,
+      String location,
+      String path,
+      Set<String> originatingTypes,
+      FileObject file) {
+    entries.add(new Entry(kind, processor, location, path, originatingTypes, file, -1));
+  }
+
+  void add(Entry entry) {
+    entries.add(entry);
+  }
+
+  List<Entry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  static ProvenanceManifest read(File file) throws IOException {
+    ProvenanceManifest manifest = new ProvenanceManifest();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported provenance manifest: " + file);
+      }
+      String[] strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readUTF();
+      }
+      Kind[] kinds = Kind.values();
+      for (int count = in.readInt(); count > 0; count--) {
+        Kind kind = kinds[in.readUnsignedByte()];
+        String processor = strings[in.readInt()];
+        String location = strings[in.readInt()];
+        String path = strings[in.readInt()];
+        long size = in.readLong();
+        Set<String> originatingTypes = new LinkedHashSet<>();
+        for (int n = in.readInt(); n > 0; n--) {
+          originatingTypes.add(strings[in.readInt()]);
+        }
+        manifest.add(new Entry(kind, processor, location, path, originatingTypes, size));
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Malformed provenance manifest: " + file, e);
+    }
+    return manifest;
+  }
+
+  void write(File file) throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    for (Entry entry : entries) {
+      intern(strings, entry.processor);
+      intern(strings, entry.location);
+      intern(strings, entry.path);
+      for (String originatingType : entry.originatingTypes) {
+        intern(strings, originatingType);
+      }
+    }
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create directory " + parent);
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      for (String s : strings.keySet()) {
+        out.writeUTF(s);
+      }
+      out.writeInt(entries.size());
+      for (Entry entry : entries) {
+        out.writeByte(entry.kind.ordinal());
+        out.writeInt(strings.get(entry.processor));
+        out.writeInt(strings.get(entry.location));
+        out.writeInt(strings.get(entry.path));
+        out.writeLong(entry.getSize());
+        out.writeInt(entry.originatingTypes.size());
+        for (String originatingType : entry.originatingTypes) {
+          out.writeInt(strings.get(originatingType));
+        }
+      }
+    }
+  }
+
+  private static void intern(Map<String, Integer> strings, String s) {
+    if (!strings.containsKey(s)) {
+      strings.put(s, strings.size());
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package net.ltgt.gradle.apt;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+
+/**
+ * A {@link Filer} counting the generated files, and recording them into a {@link
+ * GenerationManifest} and {@link ProvenanceManifest} if they're given.
+ */
+class RecordingFiler implements Filer {
+  private final Filer delegate;
+  private final String processorName;
+  @Nullable private final GenerationManifest manifest;
+  @Nullable private final ProvenanceManifest provenance;
+  private int generatedFiles;
+
+  RecordingFiler(
+      Filer delegate,
+      String processorName,
+      @Nullable GenerationManifest manifest,
+      @Nullable ProvenanceManifest provenance) {
+    this.delegate = delegate;
+    this.processorName = processorName;
+    this.manifest = manifest;
+    this.provenance = provenance;
+  }
+
+  int getGeneratedFiles() {
+    return generatedFiles;
+  }
+
+  @Override
+  public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements)
+      throws IOException {
+    JavaFileObject file = delegate.createSourceFile(name, originatingElements);
+    generatedFiles++;
+    record(
+        ProvenanceManifest.Kind.SOURCE,
+        GenerationManifest.SOURCE_OUTPUT,
+        toPath(name) + JavaFileObject.Kind.SOURCE.extension,
+        file,
+        originatingElements);
+    return file;
+  }
+
+  @Override
+  public JavaFileObject createClassFile(CharSequence name, Element... originatingElements)
+      throws IOException {
+    JavaFileObject file = delegate.createClassFile(name, originatingElements);
+    generatedFiles++;
+    record(
+        ProvenanceManifest.Kind.CLASS,
+        GenerationManifest.CLASS_OUTPUT,
+        toPath(name) + JavaFileObject.Kind.CLASS.extension,
+        file,
+        originatingElements);
+    return file;
+  }
+
+  @Override
+  public FileObject createResource(
+      JavaFileManager.Location location,
+      CharSequence pkg,
+      CharSequence relativeName,
+      Element... originatingElements)
+      throws IOException {
+    FileObject file = delegate.createResource(location, pkg, relativeName, originatingElements);
+    generatedFiles++;
+    String pkgPath = toPath(pkg);
+    record(
+        ProvenanceManifest.Kind.RESOURCE,
+        location.getName(),
+        pkgPath.isEmpty() ? relativeName.toString() : pkgPath + '/' + relativeName,
+        file,
+        originatingElements);
+    return file;
+  }
+
+  @Override
+  public FileObject getResource(
+      JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName)
+      throws IOException {
+    return delegate.getResource(location, pkg, relativeName);
+  }
+
+  private void record(
+      ProvenanceManifest.Kind kind,
+      String location,
+      String path,
+      FileObject file,
+      Element[] originatingElements) {
+    if (manifest == null && provenance == null) {
+      return;
+    }
+    Set<String> originatingTypes = new LinkedHashSet<>();
+    for (Element originatingElement : originatingElements) {
+      String topLevelName = DelegatingProcessor.getTopLevelName(originatingElement);
+      if (topLevelName != null) {
+        originatingTypes.add(topLevelName);
+      }
+    }
+    // Only files in the output directories are tracked for incremental processing.
+    if (manifest != null
+        && (location.equals(GenerationManifest.SOURCE_OUTPUT)
+            || location.equals(GenerationManifest.CLASS_OUTPUT))) {
+      manifest.add(new GenerationManifest.Entry(location, path, originatingTypes));
+    }
+    if (provenance != null) {
+      provenance.add(kind, processorName, location, path, originatingTypes, file);
+    }
+  }
+
+  private static String toPath(CharSequence name) {
+    String s = name.toString();
+    // Strip the module prefix (Java 9+)
+    s = s.substring(s.indexOf('/') + 1);
+    return s.replace('.', '/');
+  }
+}
@@ -0,0 +1,92 @@
+package net.ltgt.gradle.apt
+
+import nebula.test.dependencies.DependencyGraphBuilder
+import nebula.test.dependencies.GradleDependencyGenerator
+import nebula.test.dependencies.ModuleBuilder
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ProjectConnection
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class AnnotationProcessingModelIntegrationSpec extends Specification {
+  @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+  File settingsFile, buildFile
+
+  def setup() {
+    settingsFile = testProjectDir.newFile('settings.gradle')
+    settingsFile << """\
+      include 'core'
+    """.stripIndent()
+    buildFile = testProjectDir.newFile('build.gradle')
+    buildFile << """\
+      buildscript {
+        dependencies {
+          classpath files(\$/${System.getProperty('plugin')}/\$)
+        }
+      }
+    """.stripIndent()
+  }
+
+  @Unroll
+  def "tooling api, with Gradle #gradleVersion"() {
+    setup:
+    def mavenRepo = new GradleDependencyGenerator(
+        new DependencyGraphBuilder()
+            .addModule(new ModuleBuilder('processor:compile:1.0')
+                .addDependency('leaf:compile:1.0')
+                .build())
+            .build(),
+        testProjectDir.newFolder('repo').path)
+        .generateTestMavenRepo()
+
+    buildFile << """\
+        project(':core') {
+          apply plugin: 'java'
+          apply plugin: 'net.ltgt.apt'
+          repositories {
+            maven { url file(\$/${mavenRepo}/\$) }
+          }
+          dependencies {
+            annotationProcessor 'processor:compile:1.0'
+          }
+          compileJava.aptOptions.processors = ['processor.Processor']
+          compileJava.aptOptions.processorArgs = [foo: 'bar']
+          compileJava.aptOptions.processorArg 'baz', { 'qux' }
+          compileTestJava.aptOptions.annotationProcessing = false
+        }
+    """.stripIndent()
+
+    when:
+    ProjectConnection connection = GradleConnector.newConnector()
+        .forProjectDirectory(new File(testProjectDir.root, 'core'))
+        .useGradleVersion(gradleVersion)
+        .connect()
+    def model = connection.getModel(AnnotationProcessingModel)
+
+    then:
+    model.projectPath == ':core'
+    model.sourceSets*.name == ['main', 'test']
+    with(model.sourceSets[0]) {
+      annotationProcessing
+      processorPath*.name == ['compile-1.0.jar', 'compile-1.0.jar']
+      generatedSourcesDir == new File(testProjectDir.root, 'core/build/generated/source/apt/main')
+      processors == ['processor.Processor']
+      processorArgs == [foo: 'bar', baz: 'qux']
+    }
+    with(model.sourceSets[1]) {
+      !annotationProcessing
+      processorPath.empty
+      generatedSourcesDir == new File(testProjectDir.root, 'core/build/generated/source/apt/test')
+      processors.empty
+      processorArgs.isEmpty()
+    }
+
+    cleanup:
+    connection.close()
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS
+  }
+}
@@ -0,0 +1,118 @@
+package net.ltgt.gradle.apt
+
+import java.util.concurrent.TimeUnit
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class AnnotationProcessorDetectorSpec extends Specification {
+  @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+
+  File cacheDir
+
+  def setup() {
+    cacheDir = tmpDir.newFolder('cache')
+  }
+
+  def 'detects processors in jars and directories'() {
+    given:
+    def processorJar = jar('processor.jar', [
+        (AnnotationProcessorDetector.PROCESSOR_SERVICE): """\
+          # some comment
+          processor.FirstProcessor
+          processor.SecondProcessor # trailing comment
+
+        """.stripIndent()
+    ])
+    def libraryJar = jar('library.jar', ['library/Library.class': ''])
+    def processorDir = tmpDir.newFolder('processor-dir')
+    def serviceFile = new File(processorDir, AnnotationProcessorDetector.PROCESSOR_SERVICE)
+    serviceFile.parentFile.mkdirs()
+    serviceFile.text = 'processor.ThirdProcessor\n'
+
+    def detector = new AnnotationProcessorDetector(cacheDir)
+
+    expect:
+    detector.getProcessors(processorJar) as List == ['processor.FirstProcessor', 'processor.SecondProcessor']
+    detector.getProcessors(libraryJar).empty
+    detector.getProcessors(tmpDir.newFolder('empty-dir')).empty
+    detector.getProcessors(new File(tmpDir.root, 'missing.jar')).empty
+    detector.getProcessors([libraryJar, processorDir, processorJar]) as List == ['processor.ThirdProcessor', 'processor.FirstProcessor', 'processor.SecondProcessor']
+  }
+
+  def 'caches results by path, size and last modification time'() {
+    given:
+    def processorJar = jar('processor.jar', [
+        (AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.MyProcessor\n'
+    ])
+    def libraryJar = jar('library.jar', ['library/Library.class': ''])
+
+    when:
+    new AnnotationProcessorDetector(cacheDir).getProcessors([processorJar, libraryJar])
+
+    then:
+    cacheDir.listFiles().findAll { it.name != AnnotationProcessorDetector.CLEANUP_MARKER }.size() == 2
+
+    when: 'cache entries are reused by a new detector'
+    new File(cacheDir, FileHasher.hash(FileHasher.stamp(processorJar))).text = 'processor.CachedProcessor\n'
+
+    then:
+    new AnnotationProcessorDetector(cacheDir).getProcessors(processorJar) as List == ['processor.CachedProcessor']
+
+    when: 'jar is changed'
+    processorJar.delete()
+    jar('processor.jar', [(AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.OtherProcessor\n'])
+
+    then:
+    new AnnotationProcessorDetector(cacheDir).getProcessors(processorJar) as List == ['processor.OtherProcessor']
+  }
+
+  def 'deletes cache entries that have not been used for a week, once a day'() {
+    given:
+    def processorJar = jar('processor.jar', [
+        (AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.MyProcessor\n'
+    ])
+    def eightDaysAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8)
+    def staleEntry = new File(cacheDir, 'stale')
+    staleEntry.text = 'processor.StaleProcessor\n'
+    staleEntry.lastModified = eightDaysAgo
+    def recentEntry = new File(cacheDir, 'recent')
+    recentEntry.text = 'processor.RecentProcessor\n'
+    def usedEntry = new File(cacheDir, FileHasher.hash(FileHasher.stamp(processorJar)))
+    usedEntry.text = 'processor.CachedProcessor\n'
+    usedEntry.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)
+
+    when:
+    def processors = new AnnotationProcessorDetector(cacheDir).getProcessors(processorJar)
+
+    then:
+    processors as List == ['processor.CachedProcessor']
+    !staleEntry.exists()
+    recentEntry.isFile()
+    usedEntry.lastModified() > System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)
+
+    when: 'the cache has been cleaned up less than a day ago'
+    staleEntry.text = 'processor.StaleProcessor\n'
+    staleEntry.lastModified = eightDaysAgo
+    new AnnotationProcessorDetector(cacheDir).getProcessors(jar('library.jar', ['library/Library.class': '']))
+
+    then:
+    staleEntry.isFile()
+  }
+
+  private File jar(String name, Map<String, String> entries) {
+    def file = new File(tmpDir.root, name)
+    file.withOutputStream { os ->
+      def zos = new ZipOutputStream(os)
+      entries.each { path, content ->
+        zos.putNextEntry(new ZipEntry(path))
+        zos << content.getBytes('UTF-8')
+        zos.closeEntry()
+      }
+      zos.finish()
+    }
+    return file
+  }
+}
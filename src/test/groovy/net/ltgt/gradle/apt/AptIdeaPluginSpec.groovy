@@ -1,10 +1,27 @@
 package net.ltgt.gradle.apt
 
 import nebula.test.PluginProjectSpec
+import org.gradle.api.tasks.compile.JavaCompile
 
 class AptIdeaPluginSpec extends PluginProjectSpec {
   @Override
   String getPluginName() {
     return "net.ltgt.apt-idea"
   }
+
+  def 'excludes build outputs but not generated sources'() {
+    when:
+    project.apply plugin: pluginName
+    project.apply plugin: 'java'
+    project.task('customCompile', type: JavaCompile) {
+      destinationDir = new File(project.buildDir, 'custom/classes')
+    }
+    project.evaluate()
+
+    then:
+    def excludeDirs = project.idea.module.excludeDirs
+    !excludeDirs.contains(project.buildDir)
+    !excludeDirs.any { it.path.startsWith(new File(project.buildDir, 'generated').path) }
+    excludeDirs.containsAll(['classes', 'resources', 'libs', 'tmp', 'custom'].collect { new File(project.buildDir, it) })
+  }
 }
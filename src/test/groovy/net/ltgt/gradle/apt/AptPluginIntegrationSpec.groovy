@@ -1,5 +1,7 @@
 package net.ltgt.gradle.apt
 
+import groovy.json.JsonSlurper
+import java.util.jar.JarFile
 import org.gradle.testkit.runner.GradleRunner
 import org.gradle.testkit.runner.TaskOutcome
 import org.gradle.util.GradleVersion
@@ -907,4 +909,1332 @@ class AptPluginIntegrationSpec extends Specification {
     where:
     gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("3.5") }
   }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "deletes stale generated files in incremental mode, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'annotations'
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          compileOnly project(':annotations')
+          annotationProcessor project(':processor')
+        }
+
+        compileJava {
+          options.incremental = true
+          aptOptions.incremental = true
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('annotations', 'src', 'main', 'java', 'annotations'), 'Helper.java')
+    f.createNewFile()
+    f << """\
+      package annotations;
+
+      public @interface Helper {
+      }
+    """.stripIndent()
+
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'HelperProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.TypeElement;
+      import javax.lang.model.util.ElementFilter;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes(HelperProcessor.HELPER)
+      public class HelperProcessor extends AbstractProcessor {
+
+        static final String HELPER = "annotations.Helper";
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement element : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(
+              processingEnv.getElementUtils().getTypeElement(HELPER)))) {
+            try (Writer w = processingEnv.getFiler().createSourceFile(element.getQualifiedName() + "Helper", element).openWriter()) {
+              w.write("package " + processingEnv.getElementUtils().getPackageOf(element).getQualifiedName() + ";\\n");
+              w.write("class " + element.getSimpleName() + "Helper {}\\n");
+            } catch (IOException e) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.HelperProcessor
+    """.stripIndent()
+
+    def coreDir = testProjectDir.newFolder('core', 'src', 'main', 'java', 'core')
+    def foo = new File(coreDir, 'Foo.java')
+    foo << """\
+      package core;
+
+      @annotations.Helper
+      public class Foo {
+      }
+    """.stripIndent()
+    new File(coreDir, 'Bar.java') << """\
+      package core;
+
+      @annotations.Helper
+      public class Bar {
+      }
+    """.stripIndent()
+
+    def generatedDir = new File(testProjectDir.root, 'core/build/generated/source/apt/main/core')
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(generatedDir, 'FooHelper.java').isFile()
+    new File(generatedDir, 'BarHelper.java').isFile()
+
+    when:
+    foo.text = """\
+      package core;
+
+      public class Foo {
+      }
+    """.stripIndent()
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    !new File(generatedDir, 'FooHelper.java').exists()
+    new File(generatedDir, 'BarHelper.java').isFile()
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "deletes stale generated files, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'annotations'
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          compileOnly project(':annotations')
+          annotationProcessor project(':processor')
+        }
+
+        compileJava {
+          options.incremental = false
+          aptOptions.deleteStaleGeneratedFiles = true
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('annotations', 'src', 'main', 'java', 'annotations'), 'Helper.java')
+    f.createNewFile()
+    f << """\
+      package annotations;
+
+      public @interface Helper {
+      }
+    """.stripIndent()
+
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'HelperProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.TypeElement;
+      import javax.lang.model.util.ElementFilter;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes(HelperProcessor.HELPER)
+      public class HelperProcessor extends AbstractProcessor {
+
+        static final String HELPER = "annotations.Helper";
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          Set<TypeElement> elements = ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(
+              processingEnv.getElementUtils().getTypeElement(HELPER)));
+          for (TypeElement element : elements) {
+            try (Writer w = processingEnv.getFiler().createSourceFile(element.getQualifiedName() + "Helper", element).openWriter()) {
+              w.write("package " + processingEnv.getElementUtils().getPackageOf(element).getQualifiedName() + ";\\n");
+              w.write("class " + element.getSimpleName() + "Helper {}\\n");
+            } catch (IOException e) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+            }
+          }
+          // Generated without originating elements
+          if (!elements.isEmpty()) {
+            try (Writer w = processingEnv.getFiler().createSourceFile("core.Helpers").openWriter()) {
+              w.write("package core;\\nclass Helpers {}\\n");
+            } catch (IOException e) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.HelperProcessor
+    """.stripIndent()
+
+    def coreDir = testProjectDir.newFolder('core', 'src', 'main', 'java', 'core')
+    def foo = new File(coreDir, 'Foo.java')
+    foo << """\
+      package core;
+
+      @annotations.Helper
+      public class Foo {
+      }
+    """.stripIndent()
+    def bar = new File(coreDir, 'Bar.java')
+    bar << """\
+      package core;
+
+      @annotations.Helper
+      public class Bar {
+      }
+    """.stripIndent()
+
+    def generatedDir = new File(testProjectDir.root, 'core/build/generated/source/apt/main/core')
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(generatedDir, 'FooHelper.java').isFile()
+    new File(generatedDir, 'BarHelper.java').isFile()
+    new File(generatedDir, 'Helpers.java').isFile()
+
+    when:
+    foo.text = """\
+      package core;
+
+      public class Foo {
+      }
+    """.stripIndent()
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    !new File(generatedDir, 'FooHelper.java').exists()
+    new File(generatedDir, 'BarHelper.java').isFile()
+    new File(generatedDir, 'Helpers.java').isFile()
+
+    when:
+    bar.delete()
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    !new File(generatedDir, 'BarHelper.java').exists()
+    !new File(generatedDir, 'Helpers.java').exists()
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.5") } })
+  @Unroll
+  def "skips annotation processing when no processor is found, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'library'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':library')
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('library', 'src', 'main', 'java', 'library'), 'Library.java')
+    f.createNewFile()
+    f << """\
+      package library;
+
+      public class Library {
+      }
+    """.stripIndent()
+
+    f = new File(testProjectDir.newFolder('core', 'src', 'main', 'java', 'core'), 'HelloWorld.java')
+    f.createNewFile()
+    f << """\
+      package core;
+
+      public class HelloWorld {
+      }
+    """.stripIndent()
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments('--debug', ':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    result.output.readLines().any { it.contains('Compiler arguments: ') && it.contains('-proc:none') }
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.5") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "reuses processor class loaders with #option, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core1'
+      include 'core2'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      configure([project('core1'), project('core2')]) {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        compileJava {
+          aptOptions.${option} = true
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'CountingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import java.util.concurrent.atomic.AtomicInteger;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.ProcessingEnvironment;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+      import javax.tools.StandardLocation;
+
+      @SupportedAnnotationTypes("*")
+      public class CountingProcessor extends AbstractProcessor {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public synchronized void init(ProcessingEnvironment processingEnv) {
+          super.init(processingEnv);
+          int count = COUNT.incrementAndGet();
+          try (Writer w = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "count").openWriter()) {
+            w.write(String.valueOf(count));
+          } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+          }
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.CountingProcessor
+    """.stripIndent()
+
+    ['core1', 'core2'].each { name ->
+      new File(testProjectDir.newFolder(name, 'src', 'main', 'java', name), 'HelloWorld.java') << """\
+        package ${name};
+
+        public class HelloWorld {
+        }
+      """.stripIndent()
+    }
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core1:compileJava', ':core2:compileJava')
+        .build()
+
+    then:
+    result.task(':core1:compileJava').outcome == TaskOutcome.SUCCESS
+    result.task(':core2:compileJava').outcome == TaskOutcome.SUCCESS
+    // Both compilations loaded the processor from the same class loader, sharing its static state
+    ['core1', 'core2'].collect {
+      new File(testProjectDir.root, "${it}/build/classes/java/main/count").text as int
+    }.sort() == [1, 2]
+
+    where:
+    [gradleVersion, option] << [
+        IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") },
+        ['cacheProcessorClassLoaders', 'processorDaemon'],
+    ].combinations()
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "fails on conflicting processor daemon fork options, with Gradle #gradleVersion"() {
+    given:
+    buildFile << """\
+      apply plugin: 'java'
+      apply plugin: 'net.ltgt.apt'
+
+      compileJava {
+        aptOptions.processorDaemon = true
+        aptOptions.processorDaemonMaxHeapSize = '512m'
+        options.forkOptions.memoryMaximumSize = '1g'
+      }
+    """.stripIndent()
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments('compileJava', '--dry-run')
+        .buildAndFail()
+
+    then:
+    result.output.contains("aptOptions.processorDaemonMaxHeapSize (512m) conflicts with options.forkOptions.memoryMaximumSize (1g)")
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "reports processor timings, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      // Adds the aptTimingsReport task
+      apply plugin: 'net.ltgt.apt'
+
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        compileJava {
+          aptOptions.profileProcessors = true
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'GeneratingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.Element;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes("java.lang.Deprecated")
+      public class GeneratingProcessor extends AbstractProcessor {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+              String name = element.getSimpleName() + "_Generated";
+              try (Writer w = processingEnv.getFiler().createSourceFile("core." + name, element).openWriter()) {
+                w.write("package core; class " + name + " {}");
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.GeneratingProcessor
+    """.stripIndent()
+
+    def sourceDir = testProjectDir.newFolder('core', 'src', 'main', 'java', 'core')
+    ['Foo', 'Bar'].each { name ->
+      new File(sourceDir, "${name}.java") << """\
+        package core;
+
+        @Deprecated
+        public class ${name} {
+        }
+      """.stripIndent()
+    }
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava', 'aptTimingsReport')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    result.task(':aptTimingsReport').outcome == TaskOutcome.SUCCESS
+    def report = new JsonSlurper().parse(new File(testProjectDir.root, 'core/build/reports/apt/compileJava/processor-timings.json'))
+    report.processors*.name == ['processor.GeneratingProcessor']
+    report.processors[0].elements == 2
+    report.processors[0].generatedFiles == 2
+    report.processors[0].rounds[0].round == 1
+    report.processors[0].totalNanos >= report.processors[0].initNanos
+    def aggregated = new JsonSlurper().parse(new File(testProjectDir.root, 'build/reports/apt/processor-timings.json'))
+    aggregated.tasks*.path == [':core:compileJava']
+    aggregated.tasks[0].report == report
+
+    when:
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava', 'aptTimingsReport')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.UP_TO_DATE
+    result.task(':aptTimingsReport').outcome == TaskOutcome.UP_TO_DATE
+
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "reports processor allocations and enforces budget, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        compileJava {
+          aptOptions.profileProcessorAllocations = true
+          aptOptions.processorAllocationBudget = project.findProperty('budget') as Long
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'AllocatingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.util.ArrayList;
+      import java.util.List;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.TypeElement;
+
+      @SupportedAnnotationTypes("java.lang.Deprecated")
+      public class AllocatingProcessor extends AbstractProcessor {
+        static List<byte[]> garbage = new ArrayList<>();
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          if (!annotations.isEmpty()) {
+            garbage.add(new byte[4 * 1024 * 1024]);
+            garbage.clear();
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.AllocatingProcessor
+    """.stripIndent()
+
+    def sourceDir = testProjectDir.newFolder('core', 'src', 'main', 'java', 'core')
+    new File(sourceDir, "Foo.java") << """\
+      package core;
+
+      @Deprecated
+      public class Foo {
+      }
+    """.stripIndent()
+
+    def reportFile = new File(testProjectDir.root, 'core/build/reports/apt/compileJava/processor-timings.json')
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    def report = new JsonSlurper().parse(reportFile)
+    report.processors*.name == ['processor.AllocatingProcessor']
+    report.processors[0].allocatedBytes >= 4 * 1024 * 1024
+    report.processors[0].rounds[0].allocatedBytes >= 4 * 1024 * 1024
+    report.processors[0].gcCount >= 0
+
+    when:
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava', '-Pbudget=1048576', '--rerun-tasks')
+        .buildAndFail()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.FAILED
+    result.output.contains("Annotation processor 'processor.AllocatingProcessor' allocated ")
+    result.output.contains(" bytes, exceeding the budget of 1048576 bytes")
+    new JsonSlurper().parse(reportFile).processors[0].allocatedBytes >= 4 * 1024 * 1024
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "records generated files provenance, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        compileJava {
+          aptOptions.recordProvenance = true
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'GeneratingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.Element;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+      import javax.tools.StandardLocation;
+
+      @SupportedAnnotationTypes("java.lang.Deprecated")
+      public class GeneratingProcessor extends AbstractProcessor {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+              String name = element.getSimpleName() + "_Generated";
+              try (Writer w = processingEnv.getFiler().createSourceFile("core." + name, element).openWriter()) {
+                w.write("package core; class " + name + " {}");
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+              try (Writer w = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "core", name + ".txt", element).openWriter()) {
+                w.write(name);
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.GeneratingProcessor
+    """.stripIndent()
+
+    def sourceDir = testProjectDir.newFolder('core', 'src', 'main', 'java', 'core')
+    new File(sourceDir, "Foo.java") << """\
+      package core;
+
+      @Deprecated
+      public class Foo {
+      }
+    """.stripIndent()
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    def manifest = ProvenanceManifest.read(new File(testProjectDir.root, 'core/build/reports/apt/compileJava/provenance-manifest.bin'))
+    manifest.entries.collect { [it.kind, it.processor, it.location, it.path, it.originatingTypes] } == [
+        [ProvenanceManifest.Kind.SOURCE, 'processor.GeneratingProcessor', 'SOURCE_OUTPUT', 'core/Foo_Generated.java', ['core.Foo'] as Set],
+        [ProvenanceManifest.Kind.RESOURCE, 'processor.GeneratingProcessor', 'CLASS_OUTPUT', 'core/Foo_Generated.txt', ['core.Foo'] as Set],
+    ]
+    manifest.entries[0].size == new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Foo_Generated.java').length()
+    manifest.entries[1].size == 'Foo_Generated'.length()
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "separate annotation processing, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        sourceSets.main.separateAnnotationProcessing = true
+
+        // Configured once the generate task has been created
+        afterEvaluate {
+          compileJava.aptOptions.processorArgs = [ 'suffix': '_Generated' ]
+        }
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'GeneratingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.annotation.processing.SupportedOptions;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.Element;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+      import javax.tools.StandardLocation;
+
+      @SupportedAnnotationTypes("java.lang.Deprecated")
+      @SupportedOptions("suffix")
+      public class GeneratingProcessor extends AbstractProcessor {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+              String name = element.getSimpleName() + processingEnv.getOptions().get("suffix");
+              try (Writer w = processingEnv.getFiler().createSourceFile("core." + name, element).openWriter()) {
+                w.write("package core; class " + name + " {}");
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+              try (Writer w = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "core", name + ".txt", element).openWriter()) {
+                w.write(name);
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.GeneratingProcessor
+    """.stripIndent()
+
+    new File(testProjectDir.newFolder('core', 'src', 'main', 'java', 'core'), 'Foo.java') << """\
+      package core;
+
+      @Deprecated
+      public class Foo {
+      }
+    """.stripIndent()
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:jar')
+        .build()
+
+    then:
+    result.task(':core:generateAnnotatedSources').outcome == TaskOutcome.SUCCESS
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Foo_Generated.java').isFile()
+    new File(testProjectDir.root, 'core/build/generated/resources/apt/main/core/Foo_Generated.txt').isFile()
+    !new File(testProjectDir.root, 'core/build/generated/resources/apt/main/core/Foo.class').exists()
+    new File(testProjectDir.root, 'core/build/classes/java/main/core/Foo_Generated.class').isFile()
+    def jarEntries = new JarFile(new File(testProjectDir.root, 'core/build/libs/core.jar')).withCloseable { it.entries().toList()*.name }
+    jarEntries.contains('core/Foo_Generated.class')
+    jarEntries.contains('core/Foo_Generated.txt')
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("4.6") } })
+  @Unroll
+  def "separate annotation processing with annotation processing disabled, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        sourceSets.main.separateAnnotationProcessing = true
+
+        compileJava.aptOptions.annotationProcessing = !project.hasProperty('noAnnotationProcessing')
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'GeneratingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.Element;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes("java.lang.Deprecated")
+      public class GeneratingProcessor extends AbstractProcessor {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+              String name = element.getSimpleName() + "_Generated";
+              try (Writer w = processingEnv.getFiler().createSourceFile("core." + name, element).openWriter()) {
+                w.write("package core; class " + name + " {}");
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.GeneratingProcessor
+    """.stripIndent()
+
+    new File(testProjectDir.newFolder('core', 'src', 'main', 'java', 'core'), 'Foo.java') << """\
+      package core;
+
+      @Deprecated
+      public class Foo {
+      }
+    """.stripIndent()
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:generateAnnotatedSources').outcome == TaskOutcome.SUCCESS
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir.root, 'core/build/classes/java/main/core/Foo_Generated.class').isFile()
+
+    when:
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments('--debug', '-PnoAnnotationProcessing', ':core:compileJava')
+        .build()
+
+    then: 'previously generated sources are not compiled either'
+    result.task(':core:generateAnnotatedSources').outcome == TaskOutcome.SKIPPED
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    !result.output.readLines().any { it.contains('Compiler arguments: ') && it.contains('-proc:only') }
+    new File(testProjectDir.root, 'core/build/classes/java/main/core/Foo.class').isFile()
+    !new File(testProjectDir.root, 'core/build/classes/java/main/core/Foo_Generated.class').exists()
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("4.6") }
+  }
+
+  @Unroll
+  def "tracks typed processor options, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        compileJava.aptOptions.processorArg 'greeting', { project.hasProperty('greeting') ? project.greeting : 'Hello' }
+        compileJava.aptOptions.processorArgInputFile 'config', 'config.txt'
+        compileJava.aptOptions.processorArgOutputDirectory 'reportDir', "\$buildDir/processor-report"
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'ReportingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.nio.charset.StandardCharsets;
+      import java.nio.file.Files;
+      import java.nio.file.Paths;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.annotation.processing.SupportedOptions;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes("*")
+      @SupportedOptions({"greeting", "config", "reportDir"})
+      public class ReportingProcessor extends AbstractProcessor {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          if (roundEnv.processingOver()) {
+            try {
+              String config = new String(Files.readAllBytes(Paths.get(processingEnv.getOptions().get("config"))), StandardCharsets.UTF_8).trim();
+              String report = processingEnv.getOptions().get("greeting") + ", " + config;
+              Files.write(Paths.get(processingEnv.getOptions().get("reportDir"), "report.txt"), report.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString());
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.ReportingProcessor
+    """.stripIndent()
+
+    new File(testProjectDir.newFolder('core', 'src', 'main', 'java', 'core'), 'Foo.java') << """\
+      package core;
+
+      public class Foo {
+      }
+    """.stripIndent()
+    def config = new File(testProjectDir.root, 'core/config.txt')
+    config.text = 'World'
+    def report = new File(testProjectDir.root, 'core/build/processor-report/report.txt')
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    report.text == 'Hello, World'
+
+    when:
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.UP_TO_DATE
+
+    when:
+    config.text = 'Gradle'
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    report.text == 'Hello, Gradle'
+
+    when:
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava', '-Pgreeting=Hi')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    report.text == 'Hi, Gradle'
+
+    when:
+    report.delete()
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava', '-Pgreeting=Hi')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    report.text == 'Hi, Gradle'
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS
+  }
+
+  @Unroll
+  def "only updates changed generated files when staging them, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'annotations'
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+
+    buildFile << """\
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt'
+
+        dependencies {
+          compileOnly project(':annotations')
+          annotationProcessor project(':processor')
+        }
+
+        compileJava.aptOptions.stagingGeneratedSources = true
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('annotations', 'src', 'main', 'java', 'annotations'), 'Helper.java')
+    f.createNewFile()
+    f << """\
+      package annotations;
+
+      public @interface Helper {
+      }
+    """.stripIndent()
+
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'HelperProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.TypeElement;
+      import javax.lang.model.util.ElementFilter;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes(HelperProcessor.HELPER)
+      public class HelperProcessor extends AbstractProcessor {
+
+        static final String HELPER = "annotations.Helper";
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement element : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(
+              processingEnv.getElementUtils().getTypeElement(HELPER)))) {
+            try (Writer w = processingEnv.getFiler().createSourceFile(element.getQualifiedName() + "Helper", element).openWriter()) {
+              w.write("package " + processingEnv.getElementUtils().getPackageOf(element).getQualifiedName() + ";\\n");
+              w.write("class " + element.getSimpleName() + "Helper {}\\n");
+            } catch (IOException e) {
+              processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.HelperProcessor
+    """.stripIndent()
+
+    def coreDir = testProjectDir.newFolder('core', 'src', 'main', 'java', 'core')
+    def foo = new File(coreDir, 'Foo.java')
+    foo << """\
+      package core;
+
+      @annotations.Helper
+      public class Foo {
+      }
+    """.stripIndent()
+    new File(coreDir, 'Bar.java') << """\
+      package core;
+
+      @annotations.Helper
+      public class Bar {
+      }
+    """.stripIndent()
+
+    def generatedDir = new File(testProjectDir.root, 'core/build/generated/source/apt/main/core')
+
+    when:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(generatedDir, 'FooHelper.java').isFile()
+    new File(generatedDir, 'BarHelper.java').isFile()
+
+    when:
+    new File(generatedDir, 'BarHelper.java').lastModified = 1000L
+    foo.text = """\
+      package core;
+
+      public class Foo {
+      }
+    """.stripIndent()
+    result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':core:compileJava')
+        .build()
+
+    then:
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    !new File(generatedDir, 'FooHelper.java').exists()
+    new File(generatedDir, 'BarHelper.java').lastModified() == 1000L
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS
+  }
 }
@@ -0,0 +1,210 @@
+package net.ltgt.gradle.apt
+
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradle.util.GradleVersion
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ConfigurationCacheIntegrationSpec extends Specification {
+  @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+  File settingsFile
+  File buildFile
+
+  def setup() {
+    settingsFile = testProjectDir.newFile('settings.gradle')
+    settingsFile << """\
+      include 'processor'
+      include 'core'
+    """.stripIndent()
+    buildFile = testProjectDir.newFile('build.gradle')
+    buildFile << """\
+      buildscript {
+        dependencies {
+          classpath files(\$/${System.getProperty('plugin')}/\$)
+        }
+      }
+      // Adds the aptTimingsReport task
+      apply plugin: 'net.ltgt.apt'
+
+      subprojects {
+        apply plugin: 'java'
+      }
+      project('core') {
+        apply plugin: 'net.ltgt.apt-idea'
+        apply plugin: 'net.ltgt.apt-eclipse'
+
+        dependencies {
+          annotationProcessor project(':processor')
+        }
+
+        compileJava.aptOptions.incremental = true
+        compileJava.aptOptions.profileProcessors = true
+        compileJava.aptOptions.normalizeGeneratedSources = true
+      }
+    """.stripIndent()
+
+    def f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'java', 'processor'), 'GeneratingProcessor.java')
+    f.createNewFile()
+    f << """\
+      package processor;
+
+      import java.io.IOException;
+      import java.io.Writer;
+      import java.util.Set;
+      import javax.annotation.processing.AbstractProcessor;
+      import javax.annotation.processing.RoundEnvironment;
+      import javax.annotation.processing.SupportedAnnotationTypes;
+      import javax.lang.model.SourceVersion;
+      import javax.lang.model.element.Element;
+      import javax.lang.model.element.TypeElement;
+      import javax.tools.Diagnostic;
+
+      @SupportedAnnotationTypes("java.lang.Deprecated")
+      public class GeneratingProcessor extends AbstractProcessor {
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+          for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+              String name = element.getSimpleName() + "_Generated";
+              try (Writer w = processingEnv.getFiler().createSourceFile("core." + name, element).openWriter()) {
+                w.write("package core; class " + name + " {}");
+              } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+              }
+            }
+          }
+          return false;
+        }
+      }
+    """.stripIndent()
+    f = new File(testProjectDir.newFolder('processor', 'src', 'main', 'resources', 'META-INF', 'services'), 'javax.annotation.processing.Processor')
+    f.createNewFile()
+    f << """\
+      processor.GeneratingProcessor
+    """.stripIndent()
+
+    new File(testProjectDir.newFolder('core', 'src', 'main', 'java', 'core'), 'Foo.java') << """\
+      package core;
+
+      @Deprecated
+      public class Foo {
+      }
+    """.stripIndent()
+  }
+
+  @Requires({ IntegrationTestHelper.CONFIGURATION_CACHE_GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("6.6") } })
+  @Unroll
+  def "reuses the configuration cache, with Gradle #gradleVersion"() {
+    when:
+    def result = runner(gradleVersion, ':core:compileJava', 'aptTimingsReport').build()
+
+    then:
+    result.output.contains("Configuration cache entry stored")
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Foo_Generated.java').isFile()
+    new File(testProjectDir.root, 'core/build/reports/apt/compileJava/processor-timings.json').isFile()
+    new File(testProjectDir.root, 'build/reports/apt/processor-timings.json').text.contains('":core:compileJava"')
+
+    when:
+    new File(testProjectDir.root, 'core/src/main/java/core/Bar.java') << """\
+      package core;
+
+      @Deprecated
+      public class Bar {
+      }
+    """.stripIndent()
+    result = runner(gradleVersion, ':core:compileJava', 'aptTimingsReport').build()
+
+    then:
+    result.output.contains("Reusing configuration cache")
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Foo_Generated.java').isFile()
+    new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Bar_Generated.java').isFile()
+    new File(testProjectDir.root, 'build/reports/apt/processor-timings.json').text.contains('":core:compileJava"')
+
+    when:
+    result = runner(gradleVersion, ':core:compileJava').build()
+
+    then:
+    result.output.contains("Reusing configuration cache")
+    result.task(':core:compileJava').outcome == TaskOutcome.UP_TO_DATE
+
+    where:
+    gradleVersion << IntegrationTestHelper.CONFIGURATION_CACHE_GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("6.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.CONFIGURATION_CACHE_GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("6.6") } })
+  @Unroll
+  def "detects annotation processors again when reusing the configuration cache, with Gradle #gradleVersion"() {
+    given:
+    def serviceFile = new File(testProjectDir.root, 'processor/src/main/resources/META-INF/services/javax.annotation.processing.Processor')
+    def serviceFileContent = serviceFile.text
+    serviceFile.delete()
+
+    when:
+    def result = runner(gradleVersion, ':core:compileJava').build()
+
+    then:
+    result.output.contains("Configuration cache entry stored")
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    !new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Foo_Generated.java').exists()
+
+    when:
+    serviceFile << serviceFileContent
+    result = runner(gradleVersion, ':core:compileJava').build()
+
+    then: 'no processors were detected by the first build, but that is not reused'
+    result.output.contains("Reusing configuration cache")
+    result.task(':core:compileJava').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir.root, 'core/build/generated/source/apt/main/core/Foo_Generated.java').isFile()
+
+    where:
+    gradleVersion << IntegrationTestHelper.CONFIGURATION_CACHE_GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("6.6") }
+  }
+
+  @Requires({ IntegrationTestHelper.CONFIGURATION_CACHE_GRADLE_VERSIONS.any { GradleVersion.version(it) >= GradleVersion.version("7.4") } })
+  @Unroll
+  def "IDE tasks run with the configuration cache enabled, with Gradle #gradleVersion"() {
+    when:
+    def result = runner(gradleVersion, 'idea', 'eclipse').build()
+
+    then:
+    result.task(':core:ideaModule').outcome == TaskOutcome.SUCCESS
+    result.task(':core:eclipseFactorypath').outcome == TaskOutcome.SUCCESS
+    result.task(':core:eclipseJdtApt').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir.root, 'core/core.iml').isFile()
+    new File(testProjectDir.root, 'core/.factorypath').text.contains('processor')
+    new File(testProjectDir.root, 'core/.settings/org.eclipse.jdt.apt.core.prefs').isFile()
+
+    when:
+    result = runner(gradleVersion, ':core:compileJava').build()
+
+    then: 'the compile task configuration is still cached once the IDE tasks have run'
+    result.output.contains("Configuration cache entry stored")
+
+    when:
+    result = runner(gradleVersion, ':core:compileJava').build()
+
+    then:
+    result.output.contains("Reusing configuration cache")
+
+    where:
+    gradleVersion << IntegrationTestHelper.CONFIGURATION_CACHE_GRADLE_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version("7.4") }
+  }
+
+  private GradleRunner runner(String gradleVersion, String... tasks) {
+    return GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(*tasks, '--configuration-cache')
+  }
+}
@@ -8,6 +8,7 @@ import org.gradle.testkit.runner.TaskOutcome
 import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.ProjectConnection
 import org.gradle.tooling.model.eclipse.EclipseProject
+import org.gradle.util.GradleVersion
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
@@ -321,4 +322,68 @@ class EclipseIntegrationSpec extends Specification {
     where:
     gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS
   }
+
+  @Unroll
+  def "eclipse files are not rewritten when unchanged, with Gradle #gradleVersion"() {
+    given:
+    settingsFile << """\
+      include 'processor'
+    """.stripIndent()
+    buildFile << """\
+      allprojects {
+        apply plugin: 'java'
+      }
+      dependencies {
+        annotationProcessor project(':processor')
+      }
+    """.stripIndent()
+    def factorypath = new File(testProjectDir.root, '.factorypath')
+    def aptSettings = new File(testProjectDir.root, '.settings/org.eclipse.jdt.apt.core.prefs')
+
+    when:
+    GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':eclipseFactorypath', ':eclipseJdtApt')
+        .build()
+    factorypath.lastModified = 1000000000000L
+    aptSettings.lastModified = 1000000000000L
+    def factorypathContent = factorypath.text
+    def aptSettingsContent = aptSettings.text
+
+    and:
+    def result = GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':eclipseFactorypath', ':eclipseJdtApt')
+        .build()
+
+    then:
+    if (GradleVersion.version(gradleVersion) >= GradleVersion.version("4.6")) {
+      assert result.task(':eclipseFactorypath').outcome == TaskOutcome.UP_TO_DATE
+      assert result.task(':eclipseJdtApt').outcome == TaskOutcome.UP_TO_DATE
+    }
+    factorypath.text == factorypathContent
+    factorypath.lastModified() == 1000000000000L
+    aptSettings.text == aptSettingsContent
+    aptSettings.lastModified() == 1000000000000L
+
+    when:
+    buildFile << """\
+      compileJava.aptOptions.processorArgs = [ 'foo': 'bar' ]
+    """.stripIndent()
+    GradleRunner.create()
+        .withGradleVersion(gradleVersion)
+        .withProjectDir(testProjectDir.root)
+        .withArguments(':eclipseFactorypath', ':eclipseJdtApt')
+        .build()
+
+    then:
+    factorypath.lastModified() == 1000000000000L
+    aptSettings.lastModified() != 1000000000000L
+    aptSettings.text.contains('org.eclipse.jdt.apt.processorOptions/foo=bar')
+
+    where:
+    gradleVersion << IntegrationTestHelper.GRADLE_VERSIONS
+  }
 }
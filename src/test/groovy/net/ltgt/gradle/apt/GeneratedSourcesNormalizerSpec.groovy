@@ -0,0 +1,102 @@
+package net.ltgt.gradle.apt
+
+import java.nio.charset.StandardCharsets
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class GeneratedSourcesNormalizerSpec extends Specification {
+  @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+
+  @Unroll
+  def 'removes date from #attributes'() {
+    expect:
+    GeneratedSourcesNormalizer.removeDate(attributes) == expected
+
+    where:
+    attributes                                                  | expected
+    '"p.Processor"'                                             | '"p.Processor"'
+    'value = "p.Processor", date = "2018-01-01T00:00:00Z"'      | 'value = "p.Processor"'
+    'date = "2018-01-01T00:00:00Z", value = "p.Processor"'      | ' value = "p.Processor"'
+    'value = "p", date = "2018-01-01", comments = "some, text"' | 'value = "p", comments = "some, text"'
+    'value = "p", comments = "date = \\"2018\\""'               | 'value = "p", comments = "date = \\"2018\\""'
+  }
+
+  @Unroll
+  def 'extracts processor name from #attributes'() {
+    expect:
+    GeneratedSourcesNormalizer.getProcessorName(attributes) == expected
+
+    where:
+    attributes                                | expected
+    '"p.Processor"'                           | 'p.Processor'
+    '{ "p.Processor" }'                       | 'p.Processor'
+    'date = "2018", value = "p.Processor"'    | 'p.Processor'
+    'comments = "foo", value = {"p.Processor"}' | 'p.Processor'
+    'date = "2018"'                           | null
+  }
+
+  def 'normalizes generated sources and reports processors'() {
+    given:
+    def generatedDir = tmpDir.newFolder('generated')
+    def dated = new File(generatedDir, 'p/Dated.java')
+    dated.parentFile.mkdirs()
+    dated.text = """\
+      package p;
+
+      @javax.annotation.Generated(value = "p.DatingProcessor", date = "2018-01-01T00:00:00Z")
+      class Dated {}
+    """.stripIndent()
+    def absolute = new File(generatedDir, 'p/Absolute.java')
+    absolute.text = """\
+      package p;
+
+      @Generated("p.PathProcessor")
+      class Absolute {
+        static final String PATH = "${tmpDir.root.absolutePath}/foo";
+      }
+    """.stripIndent()
+    def reproducible = new File(generatedDir, 'p/Reproducible.java')
+    reproducible.text = """\
+      package p;
+
+      @Generated("p.GoodProcessor")
+      class Reproducible {}
+    """.stripIndent()
+    def reproducibleContent = reproducible.text
+    def normalizer = new GeneratedSourcesNormalizer(StandardCharsets.UTF_8, [tmpDir.root.absolutePath])
+
+    when:
+    normalizer.normalize(generatedDir)
+
+    then:
+    dated.text == """\
+      package p;
+
+      @javax.annotation.Generated(value = "p.DatingProcessor")
+      class Dated {}
+    """.stripIndent()
+    absolute.text.contains(tmpDir.root.absolutePath)
+    reproducible.text == reproducibleContent
+    normalizer.hasNonReproducibleSources()
+    normalizer.summary == [
+        'p.DatingProcessor: @Generated date in 1 file(s)',
+        'p.PathProcessor: absolute path in 1 file(s)',
+    ]
+
+    when:
+    def reportFile = new File(tmpDir.root, 'reports/report.txt')
+    normalizer.writeReport(reportFile)
+
+    then:
+    reportFile.text == """\
+      p.DatingProcessor
+        @Generated date
+          p/Dated.java
+      p.PathProcessor
+        absolute path
+          p/Absolute.java
+    """.stripIndent()
+  }
+}
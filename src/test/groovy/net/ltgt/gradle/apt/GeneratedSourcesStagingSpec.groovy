@@ -0,0 +1,112 @@
+package net.ltgt.gradle.apt
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class GeneratedSourcesStagingSpec extends Specification {
+  @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+
+  File stagingDir, targetDir
+
+  def setup() {
+    stagingDir = new File(tmpDir.root, 'staging')
+    targetDir = new File(tmpDir.root, 'target')
+  }
+
+  def 'only replaces changed files and deletes stale ones'() {
+    given:
+    write(targetDir, 'p/Unchanged.java', 'unchanged').lastModified = 1000L
+    write(targetDir, 'p/Changed.java', 'old')
+    write(targetDir, 'p/Stale.java', 'stale')
+    write(targetDir, 'stale/Stale.java', 'stale')
+    write(stagingDir, 'p/Unchanged.java', 'unchanged')
+    write(stagingDir, 'p/Changed.java', 'new content')
+    write(stagingDir, 'q/Added.java', 'added')
+    def staging = new GeneratedSourcesStaging(new GeneratedFilesIndex())
+
+    when:
+    staging.sync(stagingDir, targetDir)
+
+    then:
+    new File(targetDir, 'p/Unchanged.java').lastModified() == 1000L
+    new File(targetDir, 'p/Changed.java').text == 'new content'
+    new File(targetDir, 'q/Added.java').text == 'added'
+    !new File(targetDir, 'p/Stale.java').exists()
+    !new File(targetDir, 'stale').exists()
+    !stagingDir.exists()
+    staging.updated == 2
+    staging.unchanged == 1
+    staging.deleted == 2
+  }
+
+  def 'empties the target directory when nothing has been generated'() {
+    given:
+    write(targetDir, 'p/Stale.java', 'stale')
+
+    when:
+    new GeneratedSourcesStaging(new GeneratedFilesIndex()).sync(stagingDir, targetDir)
+
+    then:
+    targetDir.isDirectory()
+    targetDir.list().length == 0
+  }
+
+  def 'uses and updates the index of the generated sources directory'() {
+    given:
+    def unchanged = write(targetDir, 'p/Unchanged.java', 'unchanged')
+    def unchangedHash = GeneratedFilesIndex.hash(unchanged.toPath())
+    def index = new GeneratedFilesIndex()
+    // The index is trusted as long as the file doesn't change
+    index.put('p/Unchanged.java', unchanged.toPath(), 'bogus hash')
+    write(stagingDir, 'p/Unchanged.java', 'unchanged')
+    write(stagingDir, 'p/Added.java', 'added')
+    def staging = new GeneratedSourcesStaging(index)
+
+    when:
+    staging.sync(stagingDir, targetDir)
+
+    then:
+    staging.updated == 2
+    def added = new File(targetDir, 'p/Added.java')
+    index.getHash('p/Unchanged.java', unchanged.toPath()) == unchangedHash
+    // Files without a counterpart of the same size are moved without being hashed
+    index.getHash('p/Added.java', added.toPath()) == null
+
+    when:
+    def indexFile = new File(tmpDir.root, 'index')
+    index.write(indexFile)
+    def readIndex = GeneratedFilesIndex.read(indexFile)
+
+    then:
+    readIndex.getHash('p/Unchanged.java', unchanged.toPath()) == unchangedHash
+
+    when:
+    unchanged.text = 'modified'
+
+    then:
+    readIndex.getHash('p/Unchanged.java', unchanged.toPath()) == null
+  }
+
+  def 'forgets the hash of files replaced without being hashed'() {
+    given:
+    def changed = write(targetDir, 'p/Changed.java', 'old')
+    def index = new GeneratedFilesIndex()
+    index.put('p/Changed.java', changed.toPath(), GeneratedFilesIndex.hash(changed.toPath()))
+    write(stagingDir, 'p/Changed.java', 'new content')
+
+    when:
+    new GeneratedSourcesStaging(index).sync(stagingDir, targetDir)
+
+    then:
+    changed.text == 'new content'
+    index.getHash('p/Changed.java', changed.toPath()) == null
+  }
+
+  private static File write(File dir, String path, String content) {
+    def file = new File(dir, path)
+    file.parentFile.mkdirs()
+    file.text = content
+    return file
+  }
+}
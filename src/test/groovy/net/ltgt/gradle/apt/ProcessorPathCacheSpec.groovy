@@ -0,0 +1,73 @@
+package net.ltgt.gradle.apt
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import org.gradle.api.file.FileCollection
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ProcessorPathCacheSpec extends Specification {
+  @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+
+  File gradleUserHomeDir
+
+  def setup() {
+    gradleUserHomeDir = tmpDir.newFolder('gradle-user-home')
+  }
+
+  def 'shares results between processor paths with the same files'() {
+    given:
+    def processorJar = jar('processor.jar', 'class')
+    def cache = new ProcessorPathCache(gradleUserHomeDir)
+    def fingerprint = cache.fingerprint(processorPath(processorJar))
+    def hash = cache.hash([processorJar])
+
+    when: 'the processor path is changed behind the cache'
+    jar('processor.jar', 'changed class')
+
+    then: 'results are only computed once per build'
+    cache.fingerprint(processorPath(processorJar)) == fingerprint
+    cache.hash([processorJar]) == hash
+    cache.hasProcessors(processorPath(processorJar))
+
+    and: 'a new build sees the changes'
+    def newCache = new ProcessorPathCache(gradleUserHomeDir)
+    newCache.fingerprint(processorPath(processorJar)) != fingerprint
+    newCache.hash([processorJar]) != hash
+  }
+
+  def 'distinguishes processor paths by their files, in order'() {
+    given:
+    def jar1 = jar('processor1.jar', 'class')
+    def jar2 = jar('processor2.jar', 'other class')
+    def cache = new ProcessorPathCache(gradleUserHomeDir)
+
+    expect:
+    cache.fingerprint(processorPath(jar1)) != cache.fingerprint(processorPath(jar2))
+    cache.hash([jar1, jar2]) != cache.hash([jar2, jar1])
+  }
+
+  private FileCollection processorPath(File... files) {
+    return Stub(FileCollection) {
+      getFiles() >> (files as LinkedHashSet)
+    }
+  }
+
+  private File jar(String name, String classContent) {
+    def file = new File(tmpDir.root, name)
+    file.withOutputStream { os ->
+      def zos = new ZipOutputStream(os)
+      [
+          'processor/Processor.class': classContent,
+          (AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.Processor\n',
+      ].each { path, content ->
+        zos.putNextEntry(new ZipEntry(path))
+        zos << content.getBytes('UTF-8')
+        zos.closeEntry()
+      }
+      zos.finish()
+    }
+    return file
+  }
+}
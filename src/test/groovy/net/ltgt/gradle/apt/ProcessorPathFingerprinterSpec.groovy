@@ -0,0 +1,98 @@
+package net.ltgt.gradle.apt
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ProcessorPathFingerprinterSpec extends Specification {
+  @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+
+  File cacheDir
+
+  def setup() {
+    cacheDir = tmpDir.newFolder('cache')
+  }
+
+  def 'ignores timestamps, entry order and manifest'() {
+    given:
+    def jar1 = jar('processor1.jar', 1000L, [
+        'META-INF/MANIFEST.MF': 'Manifest-Version: 1.0\nCreated-By: 1\n',
+        'processor/Processor.class': 'class',
+        (AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.Processor\n',
+    ])
+    def jar2 = jar('processor2.jar', 2000000L, [
+        (AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.Processor\n',
+        'processor/Processor.class': 'class',
+        'META-INF/MANIFEST.MF': 'Created-By: 2\nManifest-Version: 1.0\n',
+    ])
+    def changed = jar('processor3.jar', 1000L, [
+        'processor/Processor.class': 'changed class',
+        (AnnotationProcessorDetector.PROCESSOR_SERVICE): 'processor.Processor\n',
+    ])
+    def fingerprinter = new ProcessorPathFingerprinter(cacheDir)
+
+    expect:
+    new FileHasher().hash(jar1) != new FileHasher().hash(jar2)
+    fingerprinter.fingerprint([jar1]) == fingerprinter.fingerprint([jar2])
+    fingerprinter.fingerprint([jar1]) != fingerprinter.fingerprint([changed])
+    fingerprinter.fingerprint([jar1, changed]) != fingerprinter.fingerprint([changed, jar1])
+  }
+
+  def 'fingerprints directories by content'() {
+    given:
+    def dir = tmpDir.newFolder('processor-dir')
+    def classFile = new File(dir, 'processor/Processor.class')
+    classFile.parentFile.mkdirs()
+    classFile.text = 'class'
+    def fingerprinter = new ProcessorPathFingerprinter(cacheDir)
+    def fingerprint = fingerprinter.fingerprint([dir])
+
+    when:
+    classFile.lastModified = 1000L
+
+    then:
+    fingerprinter.fingerprint([dir]) == fingerprint
+
+    when:
+    classFile.text = 'changed class'
+
+    then:
+    fingerprinter.fingerprint([dir]) != fingerprint
+  }
+
+  def 'caches jar fingerprints by path, size and last modification time'() {
+    given:
+    def processorJar = jar('processor.jar', 1000L, ['processor/Processor.class': 'class'])
+
+    when:
+    def fingerprint = new ProcessorPathFingerprinter(cacheDir).fingerprintJar(processorJar)
+
+    then:
+    cacheDir.listFiles().size() == 1
+
+    when: 'cache entries are reused by a new fingerprinter'
+    new File(cacheDir, FileHasher.hash(FileHasher.stamp(processorJar))).text = 'cached'
+
+    then:
+    new ProcessorPathFingerprinter(cacheDir).fingerprintJar(processorJar) == 'cached'
+    fingerprint != 'cached'
+  }
+
+  private File jar(String name, long time, Map<String, String> entries) {
+    def file = new File(tmpDir.root, name)
+    file.withOutputStream { os ->
+      def zos = new ZipOutputStream(os)
+      entries.each { path, content ->
+        def entry = new ZipEntry(path)
+        entry.time = time
+        zos.putNextEntry(entry)
+        zos << content.getBytes('UTF-8')
+        zos.closeEntry()
+      }
+      zos.finish()
+    }
+    return file
+  }
+}